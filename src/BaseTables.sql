@@ -1,7 +1,9 @@
 create table PostalCodes(
 id varchar(100) not null primary key, 
 population int, 
-area int
+area int,
+hubCount int not null default 0,
+downHubCount int not null default 0
 );
 
 create table DistributionHubs(
@@ -28,5 +30,14 @@ hubRestored boolean,
 foreign key (hubId) references DistributionHubs(id)
 );
 
+create table WriteBehindCheckpoint(
+id varchar(255) not null primary key,
+lastSequence bigint not null
+);
 
+create table GridGeneration(
+id int not null primary key,
+generation bigint not null
+);
 
+insert into GridGeneration values(1, 0);
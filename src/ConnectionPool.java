@@ -0,0 +1,250 @@
+import java.sql.*;
+import java.util.*;
+
+//this class provides Database with a bounded pool of reusable MySQL connections. Instead of opening a new DriverManager connection
+//(and running "use <schema>") for every query, Database borrows an already open connection from this pool and returns it once the
+//query is done. The pool also validates connections that have been sitting idle before handing them out, closes connections that
+//have been idle for too long, and reports connections that were borrowed but never returned (leak detection) when the pool runs out.
+//Opening, validating and closing connections talk to the server, so they are done outside the pool's lock (a slot is reserved first),
+//and other callers can keep borrowing and releasing in the meantime
+public class ConnectionPool {
+
+    private static final long VALIDATION_INTERVAL = 30000;   //idle connections older than this (in ms) are validated before being handed out
+    private static final int VALIDATION_TIMEOUT = 2;   //time (in seconds) a connection has to answer a validation check
+
+    private String connectionURL;   //SQL connection URL
+    private String username;   //MySQL username
+    private String password;   //MySQL password
+    private String useDB;   //the "use <schema>" SQL command that is run once on every new connection
+    private int maxConnections;   //upper bound on the number of open connections (idle + borrowed + being opened or validated)
+    private long idleTimeout;   //idle connections that have not been used for this long (in ms) are closed
+    private long leakTimeout;   //borrowed connections that have not been returned for this long (in ms) are reported as leaked
+    private long borrowTimeout;   //how long (in ms) a caller waits for a connection when the pool is exhausted
+    private boolean leakTracing;   //whether the stack trace of the code that borrowed each connection is kept (to report where a leak came from)
+    private Deque<PooledConnection> idleConnections;   //connections waiting to be borrowed (most recently returned first)
+    private Set<PooledConnection> borrowedConnections;   //connections currently handed out to callers
+    private int openConnections;   //total number of open connections (idle + borrowed + being opened or validated)
+    private boolean closed;
+
+
+    ConnectionPool(String connectionURL, String username, String password, String useDB, int maxConnections, long idleTimeout, long leakTimeout, long borrowTimeout, boolean leakTracing){
+        this.connectionURL = connectionURL;
+        this.username = username;
+        this.password = password;
+        this.useDB = useDB;
+        this.maxConnections = maxConnections;
+        this.idleTimeout = idleTimeout;
+        this.leakTimeout = leakTimeout;
+        this.borrowTimeout = borrowTimeout;
+        this.leakTracing = leakTracing;
+        idleConnections = new ArrayDeque<>();
+        borrowedConnections = new HashSet<>();
+        openConnections = 0;
+        closed = false;
+    }
+
+
+
+    //this method hands out a connection to the caller. It reuses an idle connection if one is available (validating it first if it
+    //has been idle for a while), opens a new one if the pool has not reached its bound yet, and otherwise waits for another caller to
+    //return theirs. Every borrowed connection must be given back through release()
+    PooledConnection borrow() throws SQLException{
+        long deadline = System.currentTimeMillis() + borrowTimeout;
+        while(true){
+            PooledConnection idle = null;   //idle connection taken from the pool (its slot stays counted in openConnections)
+            List<PooledConnection> evicted = new ArrayList<>();   //stale idle connections taken out of the pool, closed once the lock is released
+            try{
+                synchronized(this){
+                    while(true){
+                        if(closed){
+                            throw new SQLException("Connection pool is closed!");
+                        }
+                        evictIdleConnections(evicted);
+                        if(!idleConnections.isEmpty()){   //first, try to reuse an idle connection
+                            idle = idleConnections.pollFirst();
+                            break;
+                        }
+                        if(openConnections<maxConnections){   //no idle connection, so reserve a slot for a new one if we are still under the bound
+                            openConnections++;
+                            break;
+                        }
+                        long remaining = deadline - System.currentTimeMillis();
+                        if(remaining<=0){
+                            throw exhausted();
+                        }
+                        try{
+                            wait(remaining);
+                        }
+                        catch(InterruptedException e){
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted while waiting for a database connection!");
+                        }
+                    }
+                }
+            }
+            finally{
+                for(PooledConnection pooled: evicted){
+                    pooled.closeQuietly();
+                }
+            }
+            PooledConnection pooled = idle;
+            if(pooled==null){
+                try{
+                    pooled = openConnection();
+                }
+                catch(SQLException e){
+                    freeSlot();
+                    throw e;
+                }
+            }
+            else if(!isUsable(pooled)){   //the connection went stale while sitting in the pool, so discard it and try again
+                pooled.closeQuietly();
+                freeSlot();
+                continue;
+            }
+            synchronized(this){
+                if(!closed){
+                    pooled.markBorrowed(leakTracing);
+                    borrowedConnections.add(pooled);
+                    return pooled;
+                }
+            }
+            pooled.closeQuietly();   //the pool was closed while the connection was being opened or validated
+            freeSlot();
+            throw new SQLException("Connection pool is closed!");
+        }
+    }
+
+
+
+    //method used during borrow to give back the slot of a connection that was closed (or could not be opened)
+    private synchronized void freeSlot(){
+        openConnections--;
+        notifyAll();
+    }
+
+
+
+    //method used during borrow to create the error thrown when no connection became free in time. Connections that have been borrowed for
+    //longer than leakTimeout are reported in it (with the stack trace of the code that borrowed the oldest one as the cause, if leak tracing
+    //is on), but they are not closed, since a long-running query (i.e., a large loadGridSnapshot) may still be using them
+    private SQLException exhausted(){
+        long now = System.currentTimeMillis();
+        int leaked = 0;
+        PooledConnection oldest = null;
+        for(PooledConnection pooled: borrowedConnections){
+            if(now-pooled.getBorrowedAt()>=leakTimeout){
+                leaked++;
+                if(oldest==null || pooled.getBorrowedAt()<oldest.getBorrowedAt()){
+                    oldest = pooled;
+                }
+            }
+        }
+        String message = "Connection pool exhausted (" + maxConnections + " connections in use)!";
+        if(leaked>0){
+            message += "\nDetails: " + leaked + " connection(s) borrowed more than " + leakTimeout + "ms ago have not been returned (possible leak)";
+        }
+        return new SQLException(message, oldest==null ? null : oldest.getBorrowTrace());
+    }
+
+
+
+    //this method gives a borrowed connection back to the pool. Connections that were closed in the meantime (or returned after the pool
+    //was closed) are closed and dropped instead of being reused
+    void release(PooledConnection pooled){
+        if(pooled==null){
+            return;
+        }
+        synchronized(this){
+            if(!borrowedConnections.remove(pooled)){   //connection was released twice
+                return;
+            }
+            pooled.markReturned();
+            boolean reusable = !closed;
+            try{
+                if(reusable && pooled.getConnection().isClosed()){
+                    reusable = false;
+                }
+            }
+            catch(SQLException e){
+                reusable = false;
+            }
+            if(reusable){
+                idleConnections.addFirst(pooled);
+                notifyAll();
+                return;
+            }
+        }
+        pooled.closeQuietly();
+        freeSlot();
+    }
+
+
+
+    //closes every idle connection and stops handing out new ones. Connections that are still borrowed are closed when they are released
+    void close(){
+        List<PooledConnection> idle;
+        synchronized(this){
+            closed = true;
+            idle = new ArrayList<>(idleConnections);
+            openConnections -= idleConnections.size();
+            idleConnections.clear();
+            notifyAll();
+        }
+        for(PooledConnection pooled: idle){
+            pooled.closeQuietly();
+        }
+    }
+
+
+
+    //method used during borrow (outside the lock, once a slot is reserved) to open a brand new connection and switch it to our schema
+    //(this is the only place where "use <schema>" runs)
+    private PooledConnection openConnection() throws SQLException{
+        Connection conn = null;
+        try{
+            conn = DriverManager.getConnection(connectionURL, username, password);
+            Statement statement = conn.createStatement();
+            statement.execute(useDB);
+            statement.close();
+        }
+        catch(SQLException e){
+            if(conn!=null){
+                conn.close();
+            }
+            throw new SQLException("Database connection failed!\nDetails: " + e.getMessage());
+        }
+        return new PooledConnection(conn);
+    }
+
+
+
+    //method used during borrow (outside the lock) to check whether an idle connection can still be handed out
+    private boolean isUsable(PooledConnection pooled){
+        try{
+            if(pooled.getConnection().isClosed()){
+                return false;
+            }
+            //only connections that have been idle for a while are validated against the server (validating every borrow would cost a round trip)
+            if(System.currentTimeMillis()-pooled.getLastUsed()>=VALIDATION_INTERVAL){
+                return pooled.getConnection().isValid(VALIDATION_TIMEOUT);
+            }
+            return true;
+        }
+        catch(SQLException e){
+            return false;
+        }
+    }
+
+
+
+    //method used during borrow to take the idle connections that have not been used within idleTimeout out of the pool (the caller closes
+    //them once it has left the lock). Idle connections are kept most recently used first, so the stale ones are all at the end of the deque
+    private void evictIdleConnections(List<PooledConnection> evicted){
+        long now = System.currentTimeMillis();
+        while(!idleConnections.isEmpty() && now-idleConnections.peekLast().getLastUsed()>=idleTimeout){
+            evicted.add(idleConnections.pollLast());
+            openConnections--;
+        }
+    }
+}
@@ -1,17 +1,23 @@
 //this class store the data of postal codes (whether damaged or not)
-//in other words, each postal code is stored in an object of this class
+//in other words, each postal code is stored in an object of this class.
+//Once a postal code is indexed by PostalHubIndex, its population, area and repair estimate are stored in the index's GridColumnStore, and
+//this object becomes a view over that row (the fields below only hold the values until then)
 public class DamagedPostalCodes {
 
     private String postalCodeId;
     private int population;
     private int area;
     private float repairEstimate;
+    private GridColumnStore store;   //the column store that holds this postal code's values (null until the postal code is indexed)
+    private int symbolId;   //the postal code's interned id (see SymbolTable), which is also its row in the store (-1 until the postal code is indexed)
 
     DamagedPostalCodes(String postalCodeId, int population, int area, float repairEstimate){
         this.postalCodeId = postalCodeId;
         this.population = population;
         this.area = area;
         this.repairEstimate = repairEstimate;
+        this.store = null;
+        this.symbolId = -1;
     }
 
     String getPostalCodeId(){
@@ -19,26 +25,58 @@ public class DamagedPostalCodes {
     }
 
     int getPopulation(){
+        if(store!=null){
+            return store.getPopulation(symbolId);
+        }
         return population;
     }
 
     int getArea(){
+        if(store!=null){
+            return store.getArea(symbolId);
+        }
         return area;
     }
 
     float getRepairEstimate(){
+        if(store!=null){
+            return store.getRepairEstimate(symbolId);
+        }
         return repairEstimate;
     }
 
+    int getSymbolId(){
+        return symbolId;
+    }
+
     void setPopulation(int population){
+        if(store!=null){
+            store.setPopulation(symbolId, population);
+            return;
+        }
         this.population = population;
     }
 
     void setArea(int area){
+        if(store!=null){
+            store.setArea(symbolId, area);
+            return;
+        }
         this.area = area;
     }
 
     void setRepairEstimate(float repairEstimate){
+        if(store!=null){
+            store.setRepairEstimate(symbolId, repairEstimate);
+            return;
+        }
         this.repairEstimate = repairEstimate;
     }
+
+    //method used by PostalHubIndex once it has copied this postal code's values into a store's row. From then on, the values are read from
+    //and written to that row
+    void attach(GridColumnStore store, int symbolId){
+        this.store = store;
+        this.symbolId = symbolId;
+    }
 }
\ No newline at end of file
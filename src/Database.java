@@ -1,11 +1,13 @@
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 import java.io.*;
 
 
 //this class acts as an interface between PowerService and the MySQL database. In other words, an object of this class provides
 //PowerService with all database related functions which include fetching, inserting, and updating tables
-public class Database {
+//(it is the MySQL implementation of GridStorage, see EmbeddedStorage for the in-memory one)
+public class Database implements GridStorage {
 
     private String username;   //MySQL username (retrieved from credentials.prop)
     private String password;  //MySQL password (retrieved from credentials.prop)
@@ -13,6 +15,42 @@ public class Database {
     private Properties credentials;   //variable to store properties (.prop) file
     private String connectionURL;   //string to store SQL connection URL
     private String useDB;   //a string to store the "use <schema>" SQL command (i.e., "use alhindi")
+    private ConnectionPool pool;   //pool of reusable connections that every method of this class borrows from
+
+    private static final int DEFAULT_POOL_SIZE = 8;   //maximum number of open connections (can be overridden with "poolSize" in credentials.prop)
+    private static final long IDLE_TIMEOUT = 300000;   //idle connections are closed after 5 minutes
+    private static final long LEAK_TIMEOUT = 60000;   //borrowed connections not returned within 1 minute are reported as possible leaks if the pool runs out
+    private static final long BORROW_TIMEOUT = 30000;   //callers wait at most 30 seconds for a free connection
+
+    //the SQL of every parameterized query (each one is prepared once per pooled connection, see PooledConnection's prepareStatement)
+    //a new postal code's hubCount/downHubCount start out from the relations that were stored before it (see addDistributionHub)
+    private static final String INSERT_POSTAL_CODE = "insert into PostalCodes (id, population, area, hubCount, downHubCount) "
+            + "select ?, ?, ?, count(DistributionHubs.id), coalesce(sum(DistributionHubs.inService = false), 0) from PostalHubRelation "
+            + "join DistributionHubs on DistributionHubs.id = PostalHubRelation.hubId where PostalHubRelation.postalId = ?";
+    private static final String SELECT_POSTAL_HUB_RELATION = "select postalId from PostalHubRelation where postalId=? and hubId=?";
+    private static final String INSERT_POSTAL_HUB_RELATION = "insert into PostalHubRelation values(?, ?)";
+    private static final String INCREMENT_POSTAL_HUB_COUNTS = "update PostalCodes set hubCount = hubCount + 1, "
+            + "downHubCount = downHubCount + (select count(*) from DistributionHubs where id = ? and inService = false) where id = ?";
+    private static final String INCREMENT_POSTAL_HUB_COUNT = "update PostalCodes set hubCount = hubCount + 1 where id = ?";
+    private static final String INSERT_DISTRIBUTION_HUB = "insert into DistributionHubs values(?, ?, ?, 0, true)";
+    private static final String UPDATE_HUB_DAMAGE = "update DistributionHubs set repairTime = repairTime + ?, inService = false where id = ?";
+    //the downHubCount of a hub's postal codes only changes when the hub goes from in service to down (or back), so these updates join on the
+    //hub's current inService value and must run before the hub's own row is updated (in the same transaction)
+    private static final String INCREMENT_DOWN_HUB_COUNTS = "update PostalCodes join PostalHubRelation on PostalHubRelation.postalId = PostalCodes.id "
+            + "join DistributionHubs on DistributionHubs.id = PostalHubRelation.hubId "
+            + "set PostalCodes.downHubCount = PostalCodes.downHubCount + 1 where DistributionHubs.id = ? and DistributionHubs.inService = true";
+    private static final String DECREMENT_DOWN_HUB_COUNTS = "update PostalCodes join PostalHubRelation on PostalHubRelation.postalId = PostalCodes.id "
+            + "join DistributionHubs on DistributionHubs.id = PostalHubRelation.hubId "
+            + "set PostalCodes.downHubCount = PostalCodes.downHubCount - 1 where DistributionHubs.id = ? and DistributionHubs.inService = false";
+    private static final String INSERT_REPAIR_LOG = "insert into RepairLog values (null, ?, ?, ?, ?)";
+    private static final String UPDATE_HUB_REPAIR = "update DistributionHubs set repairTime = ?, inService = ? where id = ?";
+    private static final String SELECT_WRITE_BEHIND_CHECKPOINT = "select lastSequence from WriteBehindCheckpoint where id=?";
+    private static final String UPSERT_WRITE_BEHIND_CHECKPOINT = "insert into WriteBehindCheckpoint values(?, ?) on duplicate key update lastSequence = ?";
+    private static final String INCREMENT_GRID_GENERATION = "update GridGeneration set generation = generation + 1";
+    private static final String SELECT_GRID_GENERATION = "select generation from GridGeneration";
+    //every postal code with the number of hubs that service it and the number of those hubs that are down (read from the counters kept up to
+    //date by the methods below, so no join or grouping is needed)
+    private static final String SELECT_POSTAL_HUB_AGGREGATES = "select id, population, area, hubCount, downHubCount from PostalCodes";
 
 
     Database() throws Exception{
@@ -25,21 +63,23 @@ public class Database {
             password = credentials.getProperty("password");
             database = credentials.getProperty("database");
             useDB = "use " + database + ";";
-            //set the SQL connection URL
-            connectionURL = "jdbc:mysql://db.cs.dal.ca:3306?serverTimezone=UTC&useSSL=false";
+            //set the SQL connection URL (prepared statements are prepared on the server, so it only parses each query once per connection,
+            //and batched inserts are sent as multi-row inserts)
+            connectionURL = "jdbc:mysql://db.cs.dal.ca:3306?serverTimezone=UTC&useSSL=false&useServerPrepStmts=true&cachePrepStmts=true&rewriteBatchedStatements=true";
+            int poolSize = Integer.parseInt(credentials.getProperty("poolSize", String.valueOf(DEFAULT_POOL_SIZE)).trim());
+            //"leakTracing=true" in credentials.prop keeps the stack trace of every borrow, so leaked connections can be traced back to their code
+            boolean leakTracing = Boolean.parseBoolean(credentials.getProperty("leakTracing", "false").trim());
+            pool = new ConnectionPool(connectionURL, username, password, useDB, poolSize, IDLE_TIMEOUT, LEAK_TIMEOUT, BORROW_TIMEOUT, leakTracing);
         }
         catch(IOException e){
             throw new IOException("Error reading credentials file (prop file)!\nDetails: " + e.getMessage());
         }
         try{
-            //verify that we can connect to the database using the credentials supplied
-            //by running a simple "use <schema>" command (i.e., connect to database and execute "use alhindi")
+            //verify that we can connect to the database using the credentials supplied by opening the pool's first connection
+            //(the pool runs a simple "use <schema>" command on every connection it opens, i.e., connect to database and execute "use alhindi").
+            //That connection is then kept in the pool for the queries that follow
             Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection conn = DriverManager.getConnection(connectionURL, username, password);
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            statement.close();
-            conn.close();
+            pool.release(pool.borrow());
         }
         catch(SQLException e){
             throw new SQLException("Database connection failed!\nDetails: " + e.getMessage());
@@ -48,364 +88,495 @@ public class Database {
 
 
 
-    //this method returns a Connection object to the database. It is meant to reduce redundant code since each method needs to
-    //establish a connection to the database
-    private Connection getConnection() throws SQLException{
-        Connection conn = null;
-        try{
-            conn = DriverManager.getConnection(connectionURL, username, password);
-        }
-        catch(SQLException e){
-            throw new SQLException("Database connection failed!\nDetails: " + e.getMessage());
-        }
-        return conn;
+    //this method borrows a connection from the pool. It is meant to reduce redundant code since each method needs a
+    //connection to the database. Every connection borrowed through this method must be handed back through releaseConnection
+    private PooledConnection getConnection() throws SQLException{
+        return pool.borrow();
     }
 
 
 
+    //this method returns a borrowed connection to the pool so that the next query can reuse it
+    private void releaseConnection(PooledConnection pooled){
+        pool.release(pooled);
+    }
+
+
 
-    //this method is invoked during PowerService's constructor and returns all the postal codes stored in the database's PostalCodes table
-    List<DamagedPostalCodes> getPostalCodesFromDB() throws SQLException{
-        List<DamagedPostalCodes> damagedPostalCodes = new ArrayList<>();    //list to store the postal codes that exist in the database's PostalCodes tables
+    //closes every pooled connection. It is used by PowerService's close method once the program is done with the database
+    public void close(){
+        pool.close();
+    }
+
+
+
+
+    //this method is invoked during PowerService's constructor and loads the whole grid model (all postal codes, distribution hubs, and the
+    //relations between them) into the supplied maps. Instead of querying the database once per postal code and once per hub, it reads each of
+    //the PostalCodes, DistributionHubs, and PostalHubRelation tables in a single streaming scan, and then calculates every postal code's repair
+    //estimate and every downed hub's population effected and impact in memory from those scans
+    public void loadGridSnapshot(Map<String, DamagedPostalCodes> postalCodes, Map<String, HubImpact> distributionHubs) throws SQLException{
+        PooledConnection pooled = getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            ResultSet postals = statement.executeQuery("select * from PostalCodes;");
-            //store each existing postal code in a DamagedPostalCodes object, and add that object to the list
+            Connection conn = pooled.getConnection();
+            //scan 1: store each existing postal code in a DamagedPostalCodes object (repair estimates are calculated once the hubs are known)
+            Statement statement = createStreamingStatement(conn);
+            ResultSet postals = statement.executeQuery("select id, population, area from PostalCodes;");
             while(postals.next()){
                 String postalCode = postals.getString("id");
-                float repairEstimate = calculatePostalRepairTime(postalCode);
-                damagedPostalCodes.add(new DamagedPostalCodes(postalCode, postals.getInt("population"), postals.getInt("area"), repairEstimate));
+                postalCodes.put(postalCode, new DamagedPostalCodes(postalCode, postals.getInt("population"), postals.getInt("area"), 0));
             }
             postals.close();
             statement.close();
-            conn.close();
+            //scan 2: store each existing distribution hub in a HubImpact object (serviced areas are filled in by the next scan)
+            statement = createStreamingStatement(conn);
+            ResultSet hubs = statement.executeQuery("select id, x, y, repairTime, inService from DistributionHubs;");
+            while(hubs.next()){
+                String hubId = hubs.getString("id");
+                distributionHubs.put(hubId, new HubImpact(hubId, new Point(hubs.getInt("x"), hubs.getInt("y")), new HashSet<>(), hubs.getFloat("repairTime"), hubs.getBoolean("inService"), 0, 0));
+            }
+            hubs.close();
+            statement.close();
+            //scan 3: add each postal code to the servicedAreas set of the hub that services it
+            statement = createStreamingStatement(conn);
+            ResultSet relations = statement.executeQuery("select postalId, hubId from PostalHubRelation;");
+            while(relations.next()){
+                String postalCode = relations.getString("postalId");
+                HubImpact hub = distributionHubs.get(relations.getString("hubId"));
+                if(hub==null){   //the foreign key on hubId should prevent this, but skip dangling relations just in case
+                    continue;
+                }
+                hub.getServicedAreas().add(postalCode);
+            }
+            relations.close();
+            statement.close();
         }
         catch(SQLException e){
             throw e;
         }
-        return damagedPostalCodes;
+        finally{
+            releaseConnection(pooled);
+        }
+        //now that the whole model is in memory, calculate the values that used to be queried per hub and per postal code
+        GridStorage.calculateImpacts(postalCodes, distributionHubs);
     }
 
 
 
-
-    //this method calculates a postal code's total repair time by cross-referencing between the PostalHubRelation and DistributionHubs tables.
-    //it is used during various PowerService methods
-    float calculatePostalRepairTime(String postalCode) throws SQLException{
-        float postalRepairTime = 0;
+    //method used by PowerService's reports when pushdown queries are turned on. Instead of the reports going through the postal codes one at a
+    //time, a single query reads every postal code's hub count and downed hub count (the hubCount and downHubCount columns of PostalCodes),
+    //which is streamed row by row to the consumer (so the rows are never all held in memory). The result set is closed even if the consumer
+    //throws, since a streaming result set that is left open blocks every other statement on its connection
+    public void forEachPostalHubAggregate(Consumer<PostalHubAggregate> consumer) throws SQLException{
+        PooledConnection pooled = getConnection();
+        ResultSet res = null;
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //get all the hubs that service this postal code
-            ResultSet res = statement.executeQuery("select * from PostalHubRelation join DistributionHubs on PostalHubRelation.hubId=DistributionHubs.id where PostalHubRelation.postalId = '" + postalCode + "';");
-            while(res.next()){   //for each of those hubs
-                if(!res.getBoolean("inService")){   //the hub is downed (out of service)
-                    postalRepairTime += res.getFloat("repairTime");   //add that hub's repair estimate to this postal code's total repair time
-                }
+            PreparedStatement statement = pooled.prepareStatement(SELECT_POSTAL_HUB_AGGREGATES);
+            statement.setFetchSize(Integer.MIN_VALUE);   //stream the rows instead of buffering the whole result set (see createStreamingStatement)
+            res = statement.executeQuery();
+            while(res.next()){
+                consumer.accept(new PostalHubAggregate(res.getString("id"), res.getInt("population"), res.getInt("area"), res.getInt("hubCount"), res.getInt("downHubCount")));
             }
-            res.close();
-            statement.close();
-            conn.close();
         }
         catch(SQLException e){
             throw e;
         }
-        return postalRepairTime;
+        finally{
+            closeQuietly(res);
+            releaseConnection(pooled);
+        }
+    }
+
+
+
+    //method used during loadGridSnapshot to create a forward-only, read-only statement that streams its result set row by row
+    //(setting the fetch size to Integer.MIN_VALUE tells the MySQL driver not to buffer the whole result set in memory)
+    private Statement createStreamingStatement(Connection conn) throws SQLException{
+        Statement statement = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(Integer.MIN_VALUE);
+        return statement;
     }
 
 
 
 
-    //this method is invoked during PowerService's constructor and returns all the distribution hubs stored in the database's DistributionHubs table
-    List<HubImpact> getDistributionHubsFromDB() throws SQLException{
-        List distributionHubs = new ArrayList<>();   //list to store the distribution hubs that exist in the database's DistributionHubs tables
+    //method to add postal codes provided through the addPostalCode method to the database
+    public void addPostalCodeToDB(DamagedPostalCodes newPostalCode) throws SQLException{
+        PooledConnection pooled = getConnection();
+        Connection conn = pooled.getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement1 = conn.createStatement();
-            statement1.execute(useDB);
-            //get all the stored distribution hubs
-            ResultSet hubs = statement1.executeQuery("select * from DistributionHubs;");
-            while(hubs.next()){   //for each existing distribution hub
-                String hubId = hubs.getString("id");
-                Set<String> servicedAreas = new HashSet<>();
-                Statement statement2 = conn.createStatement();
-                //get all the postal codes that this hub services
-                ResultSet hubPostals = statement2.executeQuery("select postalId from PostalHubRelation where hubId = '" + hubId + "';");
-                //add each serviced hub to this hub's servicedAreas set
-                while(hubPostals.next()){
-                    servicedAreas.add(hubPostals.getString("postalId"));
-                }
-                //check whether this hub is in service
-                boolean inService = hubs.getBoolean("inService");
-                //if this hub in service, then create a HubImpact object to store it, and add that object to the list
-                if(inService){
-                    distributionHubs.add(new HubImpact(hubId, new Point(hubs.getInt("x"), hubs.getInt("y")), servicedAreas, hubs.getFloat("repairTime"), inService, 0, 0));
-                }
-                //if this hub is not in service, then calculate the number of people effected by its outage and its impact. Then, create a HubImpact object to store this hub and add that object to the list
-                else{
-                    float effectedPopulation = calculatePopulationEffected(hubId, servicedAreas);
-                    float repairTime = hubs.getFloat("repairTime");
-                    float impact = effectedPopulation/repairTime;
-                    distributionHubs.add(new HubImpact(hubId, new Point(hubs.getInt("x"), hubs.getInt("y")), servicedAreas, repairTime, inService, impact, effectedPopulation));
-                }
-                hubPostals.close();
-                statement2.close();
-            }
-            hubs.close();
-            statement1.close();
-            conn.close();
+            conn.setAutoCommit(false);
+            //SQL insertion of new postal code's data into PostalCodes table (along with its hub counters)
+            PreparedStatement statement = pooled.prepareStatement(INSERT_POSTAL_CODE);
+            statement.setString(1, newPostalCode.getPostalCodeId());
+            statement.setInt(2, newPostalCode.getPopulation());
+            statement.setInt(3, newPostalCode.getArea());
+            statement.setString(4, newPostalCode.getPostalCodeId());
+            statement.executeUpdate();
+            incrementGridGeneration(pooled);
+            conn.commit();
         }
         catch(SQLException e){
+            rollbackQuietly(conn);
             throw e;
         }
-        return distributionHubs;
+        finally{
+            endTransaction(conn);
+            releaseConnection(pooled);
+        }
     }
 
 
 
 
-    //this method is used by various PowerService methods and by this class's getDistributionHubsFromDB method.
-    //It calculates the total number of people affected by a hub's outage (i.e., for a given hub, how many people are out of power because of its outage)
-    float calculatePopulationEffected(String hubId, Set<String> servicedAreas) throws SQLException{
-        float populationEffected = 0;
-        Iterator itr = servicedAreas.iterator();
-        while(itr.hasNext()){    //iterate through this hub's serviced postal codes
-            String postalCode = (String) itr.next();
-            try{
-                Connection conn = getConnection();
-                Statement statement = conn.createStatement();
-                statement.execute(useDB);
-                //get the population of this postal code
-                ResultSet postalPop = statement.executeQuery("select population from PostalCodes where id = '" + postalCode + "';");
-                float postalPopulation = 0;
-                while(postalPop.next()){
-                    postalPopulation = (float) postalPop.getInt("population");
-                }
-                postalPop.close();
-                //get the total number of hubs that service this postal code
-                float postalHubs = getNumberOfPostalHubs(postalCode);
-                //calculate the fraction of this postal code's population that is affected by this hub's outage
-                populationEffected += postalPopulation * (1/postalHubs);
-                postalPop.close();
-                statement.close();
-                conn.close();
-            }
-            catch(SQLException e){
-                throw e;
+    //method to establish relationship between postal code and hub servicing it by inserting
+    //the pairing into the PostalHubRelation many-to-many table
+    //this method is used during addPostalCode and addDistributionHub
+    public void updatePostalHubRelation(String postalCode, String hubId) throws SQLException{
+        PooledConnection pooled = getConnection();
+        Connection conn = pooled.getConnection();
+        try{
+            conn.setAutoCommit(false);
+            //first, check if the relationship between the postal and hub already exists
+            PreparedStatement select = pooled.prepareStatement(SELECT_POSTAL_HUB_RELATION);
+            select.setString(1, postalCode);
+            select.setString(2, hubId);
+            ResultSet res = select.executeQuery();
+            //CITATION NOTE: I was unsure on how to check if a ResultSet is empty, so I referenced the following URL for the boolean statement [if(res.next()==false)]:
+            //URL: https://javarevisited.blogspot.com/2016/10/how-to-check-if-resultset-is-empty-in-Java-JDBC.html#axzz7mL7lknva
+            //Accessed: December 8, 2022
+            if(res.next()==false){   //relationship does not already exist
+                //so, insert a row to represent the relationship in the PostalHubRelation table
+                PreparedStatement insert = pooled.prepareStatement(INSERT_POSTAL_HUB_RELATION);
+                insert.setString(1, postalCode);
+                insert.setString(2, hubId);
+                insert.executeUpdate();
+                //and count the hub in the postal code's hubCount (and downHubCount if the hub is down)
+                PreparedStatement counts = pooled.prepareStatement(INCREMENT_POSTAL_HUB_COUNTS);
+                counts.setString(1, hubId);
+                counts.setString(2, postalCode);
+                counts.executeUpdate();
+                incrementGridGeneration(pooled);
             }
+            res.close();
+            conn.commit();
+        }
+        catch(SQLException e){
+            rollbackQuietly(conn);
+            throw e;
+        }
+        finally{
+            endTransaction(conn);
+            releaseConnection(pooled);
         }
-        return populationEffected;
     }
 
 
 
 
-    //this method finds and returns the total number of hubs that service a postal code.
-    //It is used during PowerService's underservedPostalByPopulation, underservedPostalByArea, and this class's calculatePopulationEffected methods
-    float getNumberOfPostalHubs(String postalCode) throws SQLException{
-        float postalHubs = 0;
+    //method to add a new distribution hub provided through the addDistributionHub method to the database's DistributionHubs table, along
+    //with a PostalHubRelation row for each of its serviced areas. Everything is written on one connection in a single transaction (so either
+    //the hub and all its relations are stored, or none of them are), and the relations are sent as one JDBC batch of inserts (which the driver
+    //rewrites into multi-row inserts) instead of a select and an insert per postal code. The hub is new, so none of its relations can exist
+    //yet, and any failed insert rolls back the whole transaction
+    public void addDistributionHubToDB(HubImpact newHub) throws SQLException{
+        PooledConnection pooled = getConnection();
+        Connection conn = pooled.getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //get the count of rows returned for this postal code in the PostalHubRelation table (where each entry is a unique relation between a postal code and a hub servicing it)
-            ResultSet res = statement.executeQuery("select count(*) as hubs from PostalHubRelation where postalId = '" + postalCode + "';");
-            while(res.next()){
-                postalHubs = (float) res.getInt("hubs");
+            conn.setAutoCommit(false);
+            //simple SQL insert of new hub's data into DistributionHubs table
+            PreparedStatement statement = pooled.prepareStatement(INSERT_DISTRIBUTION_HUB);
+            statement.setString(1, newHub.getHubId());
+            statement.setInt(2, newHub.getX());
+            statement.setInt(3, newHub.getY());
+            statement.executeUpdate();
+            //note that relations are also stored for postal codes that do not exist yet (see addDistributionHub)
+            if(!newHub.getServicedAreas().isEmpty()){
+                PreparedStatement relations = pooled.prepareStatement(INSERT_POSTAL_HUB_RELATION);
+                for(String postalCode: newHub.getServicedAreas()){
+                    relations.setString(1, postalCode);
+                    relations.setString(2, newHub.getHubId());
+                    relations.addBatch();
+                }
+                relations.executeBatch();
+                //the hub is in service, so only the postal codes' hubCount goes up
+                PreparedStatement counts = pooled.prepareStatement(INCREMENT_POSTAL_HUB_COUNT);
+                for(String postalCode: newHub.getServicedAreas()){
+                    counts.setString(1, postalCode);
+                    counts.addBatch();
+                }
+                counts.executeBatch();
             }
-            res.close();
-            statement.close();
-            conn.close();
+            incrementGridGeneration(pooled);
+            conn.commit();
         }
         catch(SQLException e){
+            rollbackQuietly(conn);
             throw e;
         }
-        return postalHubs;
+        finally{
+            endTransaction(conn);
+            releaseConnection(pooled);
+        }
     }
 
 
 
+    //method used at the end of every transaction that changes the grid model (postal codes, hubs, their relations, or a hub's repair time or
+    //status) to increase the model's generation (see getGridGeneration). It is the transaction's last statement, so the generation's row is
+    //only locked from then until the commit
+    private void incrementGridGeneration(PooledConnection pooled) throws SQLException{
+        PreparedStatement statement = pooled.prepareStatement(INCREMENT_GRID_GENERATION);
+        statement.executeUpdate();
+    }
+
 
-    //method to add postal codes provided through the addPostalCode method to the database
-    void addPostalCodeToDB(DamagedPostalCodes newPostalCode) throws SQLException{
+
+    //method used in finally blocks to close a result set (if it was opened), ignoring any errors (the original error, if any, is the one
+    //reported to the caller, and a connection that cannot close its result set is discarded by the pool)
+    private void closeQuietly(ResultSet res){
+        if(res==null){
+            return;
+        }
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //simple SQL insertion of new postal code's data into PostalCodes table
-            statement.execute("insert into PostalCodes values('" + newPostalCode.getPostalCodeId() + "', " + newPostalCode.getPopulation() + ", " + newPostalCode.getArea() + ");");
-            statement.close();
-            conn.close();
+            res.close();
         }
         catch(SQLException e){
-            throw e;
+            //nothing to do
         }
     }
 
 
 
-
-    //method to establish relationship between postal code and hub servicing it by inserting
-    //the pairing into the PostalHubRelation many-to-many table
-    //this method is used during addPostalCode and addDistributionHub
-    void updatePostalHubRelation(String postalCode, String hubId) throws SQLException{
+    //method used when a transaction fails to undo its writes, ignoring any errors (the original error is the one reported to the caller)
+    private void rollbackQuietly(Connection conn){
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //first, check if the relationship between the postal and hub already exists
-            ResultSet res = statement.executeQuery("select * from PostalHubRelation where postalId='" + postalCode + "' and hubId='" + hubId + "';");
-            //CITATION NOTE: I was unsure on how to check if a ResultSet is empty, so I referenced the following URL for the boolean statement [if(res.next()==false)]:
-            //URL: https://javarevisited.blogspot.com/2016/10/how-to-check-if-resultset-is-empty-in-Java-JDBC.html#axzz7mL7lknva
-            //Accessed: December 8, 2022
-            if(res.next()==false){   //relationship does not already exist
-                //so, insert a row to represent the relationship in the PostalHubRelation table
-                statement.execute("insert into PostalHubRelation values('" + postalCode + "', '" + hubId + "');");
-            }
-            res.close();
-            statement.close();
-            conn.close();
+            conn.rollback();
         }
         catch(SQLException e){
-            throw e;
+            //nothing to do, the transaction is abandoned either way
         }
     }
 
 
 
+    //method used after a transaction (committed or rolled back) to put the connection back in autocommit mode before it is returned to the pool
+    private void endTransaction(Connection conn){
+        try{
+            conn.setAutoCommit(true);
+        }
+        catch(SQLException e){
+            //the connection is broken, so the pool will discard it
+        }
+    }
+
+
 
-    //method to add a new distribution hub provided through the addDistributionHub method
-    //to the database's DistributionHubs table
-    void addDistributionHubToDB(HubImpact newHub) throws SQLException{
+    //method to update a hub's damage as a result of hubDamage being called
+    //(the downHubCount of the postal codes the hub services is updated in the same transaction)
+    public void updateHubDamage(String hubId, float repairTime) throws SQLException{
+        PooledConnection pooled = getConnection();
+        Connection conn = pooled.getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //simple SQL insert of new hub's data into DistributionHubs table
-            statement.execute("insert into DistributionHubs values('" + newHub.getHubId() + "', " + newHub.getLocation().getX() + ", " +newHub.getLocation().getY() + ", " + 0 + ", " + true + ");");
-            statement.close();
-            conn.close();
+            conn.setAutoCommit(false);
+            writeHubDamage(pooled, hubId, repairTime);
+            incrementGridGeneration(pooled);
+            conn.commit();
         }
         catch(SQLException e){
+            rollbackQuietly(conn);
             throw e;
         }
+        finally{
+            endTransaction(conn);
+            releaseConnection(pooled);
+        }
     }
 
 
 
-    //method to update a hub's damage as a result of hubDamage being called
-    void updateHubDamage(String hubId, float repairTime) throws SQLException{
+    //method used by updateHubDamage and applyHubWrites to write a hub's damage on a connection (as part of the caller's transaction)
+    private void writeHubDamage(PooledConnection pooled, String hubId, float repairTime) throws SQLException{
+        //if the hub was in service, its postal codes now have one more downed hub (nothing changes if it was already down)
+        PreparedStatement counts = pooled.prepareStatement(INCREMENT_DOWN_HUB_COUNTS);
+        counts.setString(1, hubId);
+        counts.executeUpdate();
+        //simple SQL update command to reflect changes in a hub's repair time and inService attributes in the DistributionHubs table
+        PreparedStatement statement = pooled.prepareStatement(UPDATE_HUB_DAMAGE);
+        statement.setFloat(1, repairTime);
+        statement.setString(2, hubId);
+        statement.executeUpdate();
+    }
+
+
+
+
+    //method to log a repair done by an employee during hubRepair into the RepairLog table
+    public void updateRepairLog(String employeeId, String hubId, float repairTime, boolean inService) throws SQLException{
+        PooledConnection pooled = getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //simple SQL update command to reflect changes in a hub's repair time and inService attributes in the DistributionHubs table
-            statement.execute("update DistributionHubs set repairTIme = repairTime + " + repairTime + ", inService = false where id = '" + hubId + "';");
-            statement.close();
-            conn.close();
+            //simple SQL insert of new repair's information into the RepairLog table
+            PreparedStatement statement = pooled.prepareStatement(INSERT_REPAIR_LOG);
+            statement.setString(1, employeeId);
+            statement.setString(2, hubId);
+            statement.setFloat(3, repairTime);
+            statement.setBoolean(4, inService);
+            statement.executeUpdate();
         }
         catch(SQLException e){
             throw e;
         }
+        finally{
+            releaseConnection(pooled);
+        }
     }
 
 
 
 
-    //method to find the fraction of a postal code's hubs that are down (i.e., if a postal code has 4 hubs servicing it and 2 are down,
-    //then this method returns 0.5). This method is used to calculate the number of people in a postal code that are out of power due to
-    //hub outages in peopleOutOfService and rateOfRestoration
-    float percentageOfPostalDamagedHubs(String postalCode) throws SQLException{
-        int totalHubs = 0;
-        int damagedHubs = 0;
+    //method to update a hub's status as a result of repairHub being called
+    //(the downHubCount of the postal codes the hub services is updated in the same transaction)
+    public void applyHubRepairToDB(String hubId, float repairTime, boolean inService) throws SQLException{
+        PooledConnection pooled = getConnection();
+        Connection conn = pooled.getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //join between PostalHubRelation and DistributionHubs on this postal code to get the information of each of the hubs that service this postal code
-            ResultSet res = statement.executeQuery("select * from PostalHubRelation join DistributionHubs on PostalHubRelation.hubId=DistributionHubs.id where PostalHubRelation.postalId = '" + postalCode + "';");
-            while(res.next()){   //iterate through the hubs that service this postal
-                totalHubs++;
-                boolean inService = res.getBoolean("inService");
-                if(!inService){
-                    damagedHubs++;
-                }
-            }
+            conn.setAutoCommit(false);
+            writeHubRepair(pooled, hubId, repairTime, inService);
+            incrementGridGeneration(pooled);
+            conn.commit();
         }
         catch(SQLException e){
+            rollbackQuietly(conn);
             throw e;
         }
-        if(totalHubs==0){   //check if this postal is not being serviced by any hubs
-            return 0;
+        finally{
+            endTransaction(conn);
+            releaseConnection(pooled);
         }
-        //calculate the fraction of downed hubs servicing this postal code
-        float downedHubPercentage = ((float) damagedHubs)/((float)totalHubs);
-        return downedHubPercentage;
     }
 
 
 
+    //method used by applyHubRepairToDB and applyHubWrites to write a hub's repair on a connection (as part of the caller's transaction)
+    private void writeHubRepair(PooledConnection pooled, String hubId, float repairTime, boolean inService) throws SQLException{
+        if(inService){   //if the hub was down, its postal codes now have one less downed hub
+            PreparedStatement counts = pooled.prepareStatement(DECREMENT_DOWN_HUB_COUNTS);
+            counts.setString(1, hubId);
+            counts.executeUpdate();
+        }
+        //simple SQL update command to reflect changes to hub's repairTime and inService attributes in the DistributionHubs table
+        PreparedStatement statement = pooled.prepareStatement(UPDATE_HUB_REPAIR);
+        statement.setFloat(1, repairTime);
+        statement.setBoolean(2, inService);
+        statement.setString(3, hubId);
+        statement.executeUpdate();
+    }
+
+
 
-    //method to find the total population that is out of service due to not being serviced by any hubs.
-    //This method is needed due in specialized situations that arise from design decisions made during the implementation
-    //of this program (see  external document for more detail)
-    float postalPopulationWithoutHubOutOfService() throws SQLException{
-        int populationOutOfService = 0;
+
+    //method used by HubWriteBehind's writer thread to write a batch of journaled hub writes in one transaction. The hub updates are applied in
+    //order, the repair log rows are sent as one JDBC batch, and the sequence number of the last journal entry in the batch is stored under
+    //the journal's checkpoint id, so the entries that were written are never written again if the program stops before the journal is cleared
+    //(RepairLogWriter also uses this method for its batches of repair log rows, with a null checkpoint id when it has no segment files)
+    public void applyHubWrites(List<HubWrite> writes, String checkpointId, long lastSequence) throws SQLException{
+        PooledConnection pooled = getConnection();
+        Connection conn = pooled.getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //left join PostalCodes and PostalHubRelation tables to find which postal code does not have corresponding entries in the PostalHubRelation table (i.e., it does not have any corresponding servicing hubs)
-            ResultSet res = statement.executeQuery("select * from PostalCodes left join PostalHubRelation on PostalCodes.id = PostalHubRelation.postalId where hubId is null");
-            //tally the populations of all such postal codes
-            while(res.next()){
-                populationOutOfService += res.getInt("population");
+            conn.setAutoCommit(false);
+            PreparedStatement repairLog = null;
+            boolean changesModel = false;   //whether the batch has hub updates (repair log rows are not part of the model)
+            for(HubWrite write: writes){
+                if(write.getType()==HubWrite.DAMAGE){
+                    writeHubDamage(pooled, write.getHubId(), write.getRepairTime());
+                    changesModel = true;
+                }
+                else if(write.getType()==HubWrite.REPAIR){
+                    writeHubRepair(pooled, write.getHubId(), write.getRepairTime(), write.getInService());
+                    changesModel = true;
+                }
+                else{
+                    if(repairLog==null){
+                        repairLog = pooled.prepareStatement(INSERT_REPAIR_LOG);
+                    }
+                    repairLog.setString(1, write.getEmployeeId());
+                    repairLog.setString(2, write.getHubId());
+                    repairLog.setFloat(3, write.getRepairTime());
+                    repairLog.setBoolean(4, write.getInService());
+                    repairLog.addBatch();
+                }
+            }
+            if(repairLog!=null){
+                repairLog.executeBatch();
+            }
+            if(checkpointId!=null){
+                PreparedStatement checkpoint = pooled.prepareStatement(UPSERT_WRITE_BEHIND_CHECKPOINT);
+                checkpoint.setString(1, checkpointId);
+                checkpoint.setLong(2, lastSequence);
+                checkpoint.setLong(3, lastSequence);
+                checkpoint.executeUpdate();
+            }
+            if(changesModel){
+                incrementGridGeneration(pooled);
             }
+            conn.commit();
         }
         catch(SQLException e){
+            rollbackQuietly(conn);
             throw e;
         }
-        return populationOutOfService;
+        finally{
+            endTransaction(conn);
+            releaseConnection(pooled);
+        }
     }
 
 
 
 
-    //method to log a repair done by an employee during hubRepair into the RepairLog table
-    void updateRepairLog(String employeeId, String hubId, float repairTime, boolean inService) throws SQLException{
+    //method to get the sequence number of the last journal entry written by applyHubWrites under a checkpoint id (0 if none has been written)
+    public long getWriteBehindCheckpoint(String checkpointId) throws SQLException{
+        long lastSequence = 0;
+        PooledConnection pooled = getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //simple SQL insert of new repair's information into the RepairLog table
-            statement.execute("insert into RepairLog values (null, '" + employeeId + "', '" + hubId + "', " + repairTime + "," + inService + ");");
-            statement.close();
-            conn.close();
+            PreparedStatement statement = pooled.prepareStatement(SELECT_WRITE_BEHIND_CHECKPOINT);
+            statement.setString(1, checkpointId);
+            ResultSet res = statement.executeQuery();
+            if(res.next()){
+                lastSequence = res.getLong("lastSequence");
+            }
+            res.close();
         }
         catch(SQLException e){
             throw e;
         }
+        finally{
+            releaseConnection(pooled);
+        }
+        return lastSequence;
     }
 
 
 
 
-    //method to update a hub's status as a result of repairHub being called
-    void applyHubRepairToDB(String hubId, float repairTime, boolean inService) throws SQLException{
+    //method to get the grid model's generation from the GridGeneration table (see incrementGridGeneration)
+    public long getGridGeneration() throws SQLException{
+        long generation = 0;
+        PooledConnection pooled = getConnection();
         try{
-            Connection conn = getConnection();
-            Statement statement = conn.createStatement();
-            statement.execute(useDB);
-            //simple SQL update command to reflect changes to hub's repairTime and inService attributes in the DistributionHubs table
-            statement.execute("update DistributionHubs set repairTime= " + repairTime + ", inService= " + inService + " where id='" + hubId + "';");
-            statement.close();
-            conn.close();
+            PreparedStatement statement = pooled.prepareStatement(SELECT_GRID_GENERATION);
+            ResultSet res = statement.executeQuery();
+            if(res.next()){
+                generation = res.getLong("generation");
+            }
+            res.close();
         }
         catch(SQLException e){
             throw e;
         }
+        finally{
+            releaseConnection(pooled);
+        }
+        return generation;
     }
 }
\ No newline at end of file
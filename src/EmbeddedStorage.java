@@ -0,0 +1,306 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+//this class is the in-memory implementation of GridStorage. It keeps the same tables as the MySQL database (see BaseTables.sql) in maps
+//in the same process, so PowerService can run without a database server (i.e., edge instances and load tests), and every write is a map
+//update instead of a round trip. It follows the database's rules: adding a postal code or hub that already exists, or relating a postal
+//code or logging a repair for a hub that does not exist, fails with an SQLException (like a primary or foreign key violation would), and
+//updates of hubs that do not exist change nothing. Every method is synchronized, since RepairLogWriter's committer thread writes to it as
+//well.
+//When created with a file, the tables are loaded from that file (if it exists) and saved back to it by save and close. The file uses the
+//grid snapshot format (see GridSnapshotFile), but it is only loaded through this class (PowerService's snapshot constructor checks its
+//snapshots against the MySQL database, which has nothing to do with this file). Repair log rows are appended to a second file next to it
+//(the snapshot file's name followed by ".repairlog", see HubWrite's toEntry) as they are logged, with one force to disk per call. Note that table changes made after the last save are lost if the program stops without calling close, and the
+//write-behind checkpoints are never saved (so PowerService does not allow write-behind mode or RepairLogWriter's segment files, which rely
+//on them, with this backend)
+public class EmbeddedStorage implements GridStorage {
+
+    private Map<String, DamagedPostalCodes> postalCodes;   //the PostalCodes table (the repair estimates are not used)
+    private Map<String, HubImpact> distributionHubs;   //the DistributionHubs table, with each hub's PostalHubRelation rows as its serviced areas (the impacts are not used)
+    private Map<String, int[]> postalHubCounts;   //number of hubs that service each postal code [0], and how many of them are down [1] (postal codes that have not been added are counted too)
+    private Map<String, Long> checkpoints;   //the WriteBehindCheckpoint table
+    private long generation;   //the GridGeneration table (see getGridGeneration), which is saved in the snapshot file's header
+    private String snapshotFile;   //file the tables are saved to (null if they are only kept in memory)
+    private FileChannel repairLog;   //file that repair log rows are appended to (null if the tables are only kept in memory)
+
+
+    //creates empty tables that are only kept in memory
+    EmbeddedStorage(){
+        postalCodes = new HashMap<>();
+        distributionHubs = new HashMap<>();
+        postalHubCounts = new HashMap<>();
+        checkpoints = new HashMap<>();
+        generation = 0;
+        snapshotFile = null;
+        repairLog = null;
+    }
+
+
+
+    //creates the tables from a snapshot file (empty tables if the file does not exist yet), which they are saved back to by save and close
+    EmbeddedStorage(String snapshotFile) throws IOException{
+        this();
+        if(snapshotFile==null){
+            throw new IllegalArgumentException("SnapshotFile is null!\nSource: EmbeddedStorage constructor");
+        }
+        this.snapshotFile = snapshotFile;
+        if(Files.exists(Paths.get(snapshotFile))){
+            Map<String, DamagedPostalCodes> savedPostals = new HashMap<>();
+            Map<String, HubImpact> savedHubs = new HashMap<>();
+            generation = GridSnapshotFile.read(snapshotFile, savedPostals, savedHubs);
+            for(DamagedPostalCodes postal: savedPostals.values()){
+                postalCodes.put(postal.getPostalCodeId(), new DamagedPostalCodes(postal.getPostalCodeId(), postal.getPopulation(), postal.getArea(), 0));
+            }
+            for(HubImpact hub: savedHubs.values()){
+                distributionHubs.put(hub.getHubId(), copyHub(hub, hub.getRepairTime(), hub.getInService()));
+                for(String postalCode: hub.getServicedAreas()){
+                    countRelation(postalCode, hub.getInService());
+                }
+            }
+        }
+        Path repairLogFile = Paths.get(snapshotFile + ".repairlog");
+        repairLog = FileChannel.open(repairLogFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try{
+            long validLength = HubWrite.readEntries(repairLog, row -> {});   //streamed, since the file only ever grows
+            repairLog.truncate(validLength);   //drop a partly written row at the end (if any), so the rows appended from now on can be read back
+            repairLog.position(validLength);
+        }
+        catch(IOException e){
+            repairLog.close();
+            throw e;
+        }
+    }
+
+
+
+    //method to copy a hub (with its own serviced areas set), so the tables never share objects with PowerService's model
+    private HubImpact copyHub(HubImpact hub, float repairTime, boolean inService){
+        return new HubImpact(hub.getHubId(), new Point(hub.getX(), hub.getY()), new HashSet<>(hub.getServicedAreas()), repairTime, inService, 0, 0);
+    }
+
+
+
+    //method to count a new PostalHubRelation row in its postal code's hub counts
+    private void countRelation(String postalCode, boolean hubInService){
+        int[] counts = postalHubCounts.computeIfAbsent(postalCode, key -> new int[2]);
+        counts[0]++;
+        if(!hubInService){
+            counts[1]++;
+        }
+    }
+
+
+
+    //method to move a hub's postal codes' downed hub counts when the hub goes down (change of 1) or comes back online (change of -1)
+    private void countHubStatus(HubImpact hub, int change){
+        for(String postalCode: hub.getServicedAreas()){
+            postalHubCounts.get(postalCode)[1] += change;
+        }
+    }
+
+
+
+    //method to append repair log rows to the repair log file with a single write and a single force to disk (does nothing if the tables are
+    //only kept in memory). Rows that could not be written are cut off the file, so the rows appended after them can still be read back
+    private void appendRepairLog(List<HubWrite> rows) throws SQLException{
+        if(repairLog==null || rows.isEmpty()){
+            return;
+        }
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for(HubWrite row: rows){
+                bytes.write(row.toEntry());
+            }
+            ByteBuffer out = ByteBuffer.wrap(bytes.toByteArray());
+            long start = repairLog.position();
+            try{
+                while(out.hasRemaining()){
+                    repairLog.write(out);
+                }
+                repairLog.force(false);
+            }
+            catch(IOException e){
+                repairLog.truncate(start);
+                repairLog.position(start);
+                throw e;
+            }
+        }
+        catch(IOException e){
+            throw new SQLException("Error writing repair log file!\nDetails: " + e.getMessage());
+        }
+    }
+
+
+
+    //saves the tables to the snapshot file (does nothing if they are only kept in memory)
+    synchronized void save() throws IOException{
+        if(snapshotFile==null){
+            return;
+        }
+        Map<String, DamagedPostalCodes> savedPostals = new HashMap<>();
+        Map<String, HubImpact> savedHubs = new HashMap<>();
+        loadGridSnapshot(savedPostals, savedHubs);   //so the snapshot also holds the calculated impacts and repair estimates
+        GridSnapshotFile.write(snapshotFile, generation, savedPostals, savedHubs);
+    }
+
+
+
+    //saves the tables to the snapshot file and closes the repair log file (does nothing if the tables are only kept in memory)
+    public synchronized void close() throws IOException{
+        if(snapshotFile==null){
+            return;
+        }
+        try{
+            save();
+        }
+        catch(IOException e){
+            throw new IOException("Error saving embedded storage to " + snapshotFile + "!\nSource: EmbeddedStorage close\nDetails: " + e.getMessage());
+        }
+        finally{
+            repairLog.close();
+        }
+    }
+
+
+
+    public synchronized void loadGridSnapshot(Map<String, DamagedPostalCodes> postalCodes, Map<String, HubImpact> distributionHubs){
+        for(DamagedPostalCodes postal: this.postalCodes.values()){
+            postalCodes.put(postal.getPostalCodeId(), new DamagedPostalCodes(postal.getPostalCodeId(), postal.getPopulation(), postal.getArea(), 0));
+        }
+        for(HubImpact hub: this.distributionHubs.values()){
+            distributionHubs.put(hub.getHubId(), copyHub(hub, hub.getRepairTime(), hub.getInService()));
+        }
+        GridStorage.calculateImpacts(postalCodes, distributionHubs);
+    }
+
+
+
+    public synchronized void forEachPostalHubAggregate(Consumer<PostalHubAggregate> consumer){
+        for(DamagedPostalCodes postal: postalCodes.values()){
+            int[] counts = postalHubCounts.get(postal.getPostalCodeId());
+            int hubCount = counts==null ? 0 : counts[0];
+            int downHubCount = counts==null ? 0 : counts[1];
+            consumer.accept(new PostalHubAggregate(postal.getPostalCodeId(), postal.getPopulation(), postal.getArea(), hubCount, downHubCount));
+        }
+    }
+
+
+
+    public synchronized void addPostalCodeToDB(DamagedPostalCodes newPostalCode) throws SQLException{
+        if(postalCodes.containsKey(newPostalCode.getPostalCodeId())){
+            throw new SQLException("Duplicate entry '" + newPostalCode.getPostalCodeId() + "' for key 'PostalCodes.PRIMARY'");
+        }
+        postalCodes.put(newPostalCode.getPostalCodeId(), new DamagedPostalCodes(newPostalCode.getPostalCodeId(), newPostalCode.getPopulation(), newPostalCode.getArea(), 0));
+        generation++;
+    }
+
+
+
+    public synchronized void updatePostalHubRelation(String postalCode, String hubId) throws SQLException{
+        HubImpact hub = distributionHubs.get(hubId);
+        if(hub==null){
+            throw new SQLException("Cannot add a PostalHubRelation row for hub '" + hubId + "' (it does not exist)");
+        }
+        if(hub.getServicedAreas().add(postalCode)){   //relationship did not already exist
+            countRelation(postalCode, hub.getInService());
+            generation++;
+        }
+    }
+
+
+
+    public synchronized void addDistributionHubToDB(HubImpact newHub) throws SQLException{
+        if(distributionHubs.containsKey(newHub.getHubId())){
+            throw new SQLException("Duplicate entry '" + newHub.getHubId() + "' for key 'DistributionHubs.PRIMARY'");
+        }
+        distributionHubs.put(newHub.getHubId(), copyHub(newHub, 0, true));
+        for(String postalCode: newHub.getServicedAreas()){
+            countRelation(postalCode, true);
+        }
+        generation++;
+    }
+
+
+
+    public synchronized void updateHubDamage(String hubId, float repairTime){
+        HubImpact hub = distributionHubs.get(hubId);
+        if(hub==null){
+            return;
+        }
+        if(hub.getInService()){
+            countHubStatus(hub, 1);
+        }
+        hub.setRepairTime(hub.getRepairTime() + repairTime);
+        hub.setInService(false);
+        generation++;
+    }
+
+
+
+    public synchronized void updateRepairLog(String employeeId, String hubId, float repairTime, boolean inService) throws SQLException{
+        if(!distributionHubs.containsKey(hubId)){
+            throw new SQLException("Cannot add a RepairLog row for hub '" + hubId + "' (it does not exist)");
+        }
+        appendRepairLog(Collections.singletonList(new HubWrite(HubWrite.REPAIR_LOG, hubId, employeeId, repairTime, inService)));
+    }
+
+
+
+    public synchronized void applyHubRepairToDB(String hubId, float repairTime, boolean inService){
+        HubImpact hub = distributionHubs.get(hubId);
+        if(hub==null){
+            return;
+        }
+        if(hub.getInService()!=inService){
+            countHubStatus(hub, inService ? -1 : 1);
+        }
+        hub.setRepairTime(repairTime);
+        hub.setInService(inService);
+        generation++;
+    }
+
+
+
+    public synchronized void applyHubWrites(List<HubWrite> writes, String checkpointId, long lastSequence) throws SQLException{
+        //the repair log rows are checked and written first (all of them with one force to disk), so the batch is applied all at once or not at all
+        List<HubWrite> repairLogRows = new ArrayList<>();
+        for(HubWrite write: writes){
+            if(write.getType()!=HubWrite.REPAIR_LOG){
+                continue;
+            }
+            if(!distributionHubs.containsKey(write.getHubId())){
+                throw new SQLException("Cannot add a RepairLog row for hub '" + write.getHubId() + "' (it does not exist)");
+            }
+            repairLogRows.add(new HubWrite(HubWrite.REPAIR_LOG, write.getHubId(), write.getEmployeeId(), write.getRepairTime(), write.getInService()));
+        }
+        appendRepairLog(repairLogRows);
+        for(HubWrite write: writes){
+            if(write.getType()==HubWrite.DAMAGE){
+                updateHubDamage(write.getHubId(), write.getRepairTime());
+            }
+            else if(write.getType()==HubWrite.REPAIR){
+                applyHubRepairToDB(write.getHubId(), write.getRepairTime(), write.getInService());
+            }
+        }
+        if(checkpointId!=null){
+            checkpoints.put(checkpointId, lastSequence);
+        }
+    }
+
+
+
+    public synchronized long getWriteBehindCheckpoint(String checkpointId){
+        return checkpoints.getOrDefault(checkpointId, 0L);
+    }
+
+
+
+    public synchronized long getGridGeneration(){
+        return generation;
+    }
+}
@@ -0,0 +1,297 @@
+import java.util.*;
+
+//this class stores the values of every indexed hub and postal code column by column (one primitive array per attribute, indexed by the hub's
+//or postal code's interned id [see SymbolTable]) instead of in one object per hub or postal code. HubImpact and DamagedPostalCodes objects
+//become views over their row once PostalHubIndex indexes them, so the rest of the program keeps using them as before, while the index's
+//scans over every postal code (i.e., peopleOutOfService) go through a few contiguous arrays rather than following a pointer per record.
+//The postal codes each hub services are stored in compressed sparse row (CSR) form: hub i's postal code ids are
+//servicedPostalIds[servicedOffsets[i]] to servicedPostalIds[servicedOffsets[i+1]-1]. A hub's serviced areas never change once it is
+//added, and hubs are added in id order, so each new hub's postal code ids are simply appended
+public class GridColumnStore {
+
+    //hub columns
+    private int hubCount;   //number of hubs stored (hub ids go from 0 to hubCount-1)
+    private float[] repairTimes;
+    private float[] impacts;
+    private float[] populationsEffected;
+    private int[] xs;   //x coordinate of each hub's location
+    private int[] ys;   //y coordinate of each hub's location
+    private BitSet inService;   //bit i is set if hub i is in service
+    private int[] servicedOffsets;   //where each hub's postal code ids start in servicedPostalIds (entry hubCount is where the next hub's start)
+    private int[] servicedPostalIds;   //the postal code ids that each hub services, hub after hub
+
+    //postal code columns (postal codes that are serviced by a hub but have not been added yet also have an id, so not every row is in use)
+    private int postalCapacity;   //length of the postal code columns
+    private BitSet addedPostals;   //bit i is set if postal code i has been added (its population, area and repair estimate are set)
+    private int[] populations;
+    private int[] areas;
+    private float[] repairEstimates;
+    private int[] hubCounts;   //number of hubs that service each postal code
+    private int[] downHubCounts;   //number of downed hubs that service each postal code
+    private SymbolTable postalIds;   //the interned ids of the postal codes (PostalHubIndex's), to turn postal code ids back into postal codes
+
+
+    //read-only view of the postal codes a hub services (see getServicedAreas). It reads the hub's postal code ids straight from the CSR
+    //arrays, so it copies nothing, and it stays valid when the arrays grow
+    private class ServicedAreas extends AbstractSet<String> {
+        private int hubId;
+
+        ServicedAreas(int hubId){
+            this.hubId = hubId;
+        }
+
+        public int size(){
+            return servicedOffsets[hubId+1] - servicedOffsets[hubId];
+        }
+
+        public boolean contains(Object postalCode){
+            if(!(postalCode instanceof String)){
+                return false;
+            }
+            int postalId = postalIds.getId((String) postalCode);
+            for(int i=servicedOffsets[hubId]; i<servicedOffsets[hubId+1]; i++){
+                if(servicedPostalIds[i]==postalId){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Iterator<String> iterator(){
+            return new Iterator<String>(){
+                private int position = servicedOffsets[hubId];   //position in servicedPostalIds of the next postal code id
+
+                public boolean hasNext(){
+                    return position<servicedOffsets[hubId+1];
+                }
+
+                public String next(){
+                    if(!hasNext()){
+                        throw new NoSuchElementException();
+                    }
+                    return postalIds.getSymbol(servicedPostalIds[position++]);
+                }
+            };
+        }
+    }
+
+
+    GridColumnStore(SymbolTable postalIds){
+        hubCount = 0;
+        repairTimes = new float[16];
+        impacts = new float[16];
+        populationsEffected = new float[16];
+        xs = new int[16];
+        ys = new int[16];
+        inService = new BitSet();
+        servicedOffsets = new int[17];
+        servicedPostalIds = new int[16];
+        postalCapacity = 16;
+        addedPostals = new BitSet();
+        populations = new int[16];
+        areas = new int[16];
+        repairEstimates = new float[16];
+        hubCounts = new int[16];
+        downHubCounts = new int[16];
+        this.postalIds = postalIds;
+    }
+
+
+
+    //method to append a hub's row (copied from the hub's current values) and the ids of the postal codes it services. Returns the hub's id,
+    //which is the number of hubs stored before it
+    int addHub(HubImpact hub, int[] postalIds){
+        int hubId = hubCount;
+        if(hubId==repairTimes.length){
+            int capacity = 2*repairTimes.length;
+            repairTimes = Arrays.copyOf(repairTimes, capacity);
+            impacts = Arrays.copyOf(impacts, capacity);
+            populationsEffected = Arrays.copyOf(populationsEffected, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            servicedOffsets = Arrays.copyOf(servicedOffsets, capacity+1);
+        }
+        int start = servicedOffsets[hubId];
+        if(start+postalIds.length>servicedPostalIds.length){
+            servicedPostalIds = Arrays.copyOf(servicedPostalIds, Math.max(2*servicedPostalIds.length, start+postalIds.length));
+        }
+        System.arraycopy(postalIds, 0, servicedPostalIds, start, postalIds.length);
+        servicedOffsets[hubId+1] = start+postalIds.length;
+        repairTimes[hubId] = hub.getRepairTime();
+        impacts[hubId] = hub.getImpact();
+        populationsEffected[hubId] = hub.getPopulationEffected();
+        xs[hubId] = hub.getX();
+        ys[hubId] = hub.getY();
+        inService.set(hubId, hub.getInService());
+        hubCount++;
+        return hubId;
+    }
+
+
+
+    //method to make room for a postal code id in the postal code columns (new rows start out with no hubs and not added)
+    void reservePostal(int postalId){
+        if(postalId<postalCapacity){
+            return;
+        }
+        postalCapacity = Math.max(2*postalCapacity, postalId+1);
+        populations = Arrays.copyOf(populations, postalCapacity);
+        areas = Arrays.copyOf(areas, postalCapacity);
+        repairEstimates = Arrays.copyOf(repairEstimates, postalCapacity);
+        hubCounts = Arrays.copyOf(hubCounts, postalCapacity);
+        downHubCounts = Arrays.copyOf(downHubCounts, postalCapacity);
+    }
+
+
+
+    //method to fill in a postal code's row (copied from the postal code's current values) once it has been added
+    void addPostal(DamagedPostalCodes postal, int postalId){
+        reservePostal(postalId);
+        populations[postalId] = postal.getPopulation();
+        areas[postalId] = postal.getArea();
+        repairEstimates[postalId] = postal.getRepairEstimate();
+        addedPostals.set(postalId);
+    }
+
+
+
+    //returns a read-only view of the postal codes that a hub services (see HubImpact's getServicedAreas), in the order its postal code ids
+    //were stored. HubImpact keeps the view, so it is only created once per hub
+    Set<String> getServicedAreas(int hubId){
+        return new ServicedAreas(hubId);
+    }
+
+
+
+    int getHubCount(){
+        return hubCount;
+    }
+
+    float getRepairTime(int hubId){
+        return repairTimes[hubId];
+    }
+
+    float getImpact(int hubId){
+        return impacts[hubId];
+    }
+
+    float getPopulationEffected(int hubId){
+        return populationsEffected[hubId];
+    }
+
+    int getX(int hubId){
+        return xs[hubId];
+    }
+
+    int getY(int hubId){
+        return ys[hubId];
+    }
+
+    boolean getInService(int hubId){
+        return inService.get(hubId);
+    }
+
+    //returns where a hub's postal code ids start in the CSR adjacency (see getServicedPostalId)
+    int getServicedStart(int hubId){
+        return servicedOffsets[hubId];
+    }
+
+    //returns where a hub's postal code ids end (exclusive) in the CSR adjacency
+    int getServicedEnd(int hubId){
+        return servicedOffsets[hubId+1];
+    }
+
+    int getServicedPostalId(int position){
+        return servicedPostalIds[position];
+    }
+
+    void setRepairTime(int hubId, float repairTime){
+        repairTimes[hubId] = repairTime;
+    }
+
+    void setImpact(int hubId, float impact){
+        impacts[hubId] = impact;
+    }
+
+    void setPopulationEffected(int hubId, float populationEffected){
+        populationsEffected[hubId] = populationEffected;
+    }
+
+    void setInService(int hubId, boolean hubInService){
+        inService.set(hubId, hubInService);
+    }
+
+
+
+    boolean isPostalAdded(int postalId){
+        return addedPostals.get(postalId);
+    }
+
+    int getPopulation(int postalId){
+        return populations[postalId];
+    }
+
+    int getArea(int postalId){
+        return areas[postalId];
+    }
+
+    float getRepairEstimate(int postalId){
+        return repairEstimates[postalId];
+    }
+
+    int getHubCount(int postalId){
+        return hubCounts[postalId];
+    }
+
+    int getDownHubCount(int postalId){
+        return downHubCounts[postalId];
+    }
+
+    void setPopulation(int postalId, int population){
+        populations[postalId] = population;
+    }
+
+    void setArea(int postalId, int area){
+        areas[postalId] = area;
+    }
+
+    void setRepairEstimate(int postalId, float repairEstimate){
+        repairEstimates[postalId] = repairEstimate;
+    }
+
+    void setHubCount(int postalId, int hubCount){
+        hubCounts[postalId] = hubCount;
+    }
+
+    void setDownHubCount(int postalId, int downHubCount){
+        downHubCounts[postalId] = downHubCount;
+    }
+
+
+
+    //method to calculate the population that is out of service due to hub outages, in one pass over the postal code columns. Each added
+    //postal code contributes the fraction of its hubs that are down times its population (postal codes without hubs contribute nothing)
+    float hubOutagePopulationOutOfService(){
+        float populationOutOfService = 0;
+        for(int postalId=addedPostals.nextSetBit(0); postalId>=0; postalId=addedPostals.nextSetBit(postalId+1)){
+            if(hubCounts[postalId]==0){
+                continue;
+            }
+            populationOutOfService += populations[postalId] * (((float) downHubCounts[postalId])/((float) hubCounts[postalId]));
+        }
+        return populationOutOfService;
+    }
+
+
+
+    //method to calculate the total population of the added postal codes that are not serviced by any hubs, in one pass over the postal code columns
+    float populationWithoutHubs(){
+        float population = 0;
+        for(int postalId=addedPostals.nextSetBit(0); postalId>=0; postalId=addedPostals.nextSetBit(postalId+1)){
+            if(hubCounts[postalId]==0){
+                population += populations[postalId];
+            }
+        }
+        return population;
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+//this class saves PowerService's whole in-memory model (postal codes, hubs, the postal codes each hub services, and the calculated impacts,
+//populations effected and repair estimates) to a binary snapshot file, and loads it back. Loading memory-maps the file and reads it in one
+//sequential pass, so a restart does not have to scan the database tables or recalculate anything (the database is then only written to).
+//The header also stores the storage's generation when the snapshot was saved (see GridStorage's getGridGeneration), so a snapshot that is
+//older than the database can be refused.
+//File layout (big-endian, strings are stored as a 2 byte length followed by their UTF-8 bytes):
+//  header:        magic number (int), format version (int), generation (long), number of postal codes (int), number of hubs (int)
+//  postal codes:  id (string), population (int), area (int), repair estimate (float)
+//  hubs:          id (string), x (int), y (int), repair time (float), in service (byte), impact (float), population effected (float),
+//                 number of serviced areas (int), then each serviced postal code (string)
+public class GridSnapshotFile {
+
+    private static final int MAGIC = 0x47524944;   //"GRID"
+    private static final int VERSION = 2;   //version of the file layout (increase it whenever the layout changes)
+
+
+    //method to write the model (at the given generation) to a snapshot file. The snapshot is written to a temporary file next to it first,
+    //forced to disk, and then moved into place, so an existing snapshot is never replaced by a half written one (even if the system crashes).
+    //The directory is forced to disk after the move as well, so the rename itself is not lost
+    static void write(String fileName, long generation, Map<String, DamagedPostalCodes> postalCodes, Map<String, HubImpact> distributionHubs) throws IOException{
+        Path file = Paths.get(fileName).toAbsolutePath();
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try{
+            try(FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))){
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(generation);
+                out.writeInt(postalCodes.size());
+                out.writeInt(distributionHubs.size());
+                for(DamagedPostalCodes postal: postalCodes.values()){
+                    writeString(out, postal.getPostalCodeId());
+                    out.writeInt(postal.getPopulation());
+                    out.writeInt(postal.getArea());
+                    out.writeFloat(postal.getRepairEstimate());
+                }
+                for(HubImpact hub: distributionHubs.values()){
+                    writeString(out, hub.getHubId());
+                    out.writeInt(hub.getX());
+                    out.writeInt(hub.getY());
+                    out.writeFloat(hub.getRepairTime());
+                    out.writeBoolean(hub.getInService());
+                    out.writeFloat(hub.getImpact());
+                    out.writeFloat(hub.getPopulationEffected());
+                    out.writeInt(hub.getServicedAreas().size());
+                    for(String postalCode: hub.getServicedAreas()){
+                        writeString(out, postalCode);
+                    }
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(file.getParent());
+        }
+        finally{
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+
+
+    //method to force a directory's entries (i.e., a file that was just moved into it) to disk
+    private static void forceDirectory(Path directory) throws IOException{
+        FileChannel channel;
+        try{
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        }
+        catch(IOException e){   //some platforms (i.e., Windows) cannot open a directory, and their file systems commit renames on their own
+            return;
+        }
+        try{
+            channel.force(true);
+        }
+        finally{
+            channel.close();
+        }
+    }
+
+
+
+    //method to read a snapshot file into the supplied (empty) maps. Returns the generation the snapshot was saved at. Throws an IOException
+    //if the file is not a snapshot, was written with a different format version, or is truncated
+    static long read(String fileName, Map<String, DamagedPostalCodes> postalCodes, Map<String, HubImpact> distributionHubs) throws IOException{
+        try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)){
+            if(channel.size()>Integer.MAX_VALUE){
+                throw new IOException("Snapshot file is too large to map (over 2GB)!");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try{
+                if(in.getInt()!=MAGIC){
+                    throw new IOException("File is not a grid snapshot!");
+                }
+                int version = in.getInt();
+                if(version!=VERSION){
+                    throw new IOException("Unsupported grid snapshot version (" + version + ", expected " + VERSION + ")!");
+                }
+                long generation = in.getLong();
+                int numberOfPostals = in.getInt();
+                int numberOfHubs = in.getInt();
+                for(int i=0; i<numberOfPostals; i++){
+                    String postalCode = readString(in);
+                    DamagedPostalCodes postal = new DamagedPostalCodes(postalCode, in.getInt(), in.getInt(), in.getFloat());
+                    postalCodes.put(postalCode, postal);
+                }
+                for(int i=0; i<numberOfHubs; i++){
+                    String hubId = readString(in);
+                    Point location = new Point(in.getInt(), in.getInt());
+                    float repairTime = in.getFloat();
+                    boolean inService = in.get()!=0;
+                    float impact = in.getFloat();
+                    float populationEffected = in.getFloat();
+                    int numberOfAreas = in.getInt();
+                    Set<String> servicedAreas = new HashSet<>();
+                    for(int j=0; j<numberOfAreas; j++){
+                        servicedAreas.add(readString(in));
+                    }
+                    distributionHubs.put(hubId, new HubImpact(hubId, location, servicedAreas, repairTime, inService, impact, populationEffected));
+                }
+                return generation;
+            }
+            catch(java.nio.BufferUnderflowException e){
+                throw new IOException("Grid snapshot file is truncated!");
+            }
+        }
+    }
+
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException{
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length>0xFFFF){   //the length is stored in 2 bytes
+            throw new IOException("Identifier is too long for a grid snapshot!\nSource: GridSnapshotFile write\nDetails: " + bytes.length + " bytes (at most 65535)");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+
+
+    private static String readString(ByteBuffer in){
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
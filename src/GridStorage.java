@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+//this interface is the storage backend that PowerService reads the grid model from and writes every change to. Database stores the model in
+//MySQL, and EmbeddedStorage keeps it in memory in the same process (optionally saving it to a snapshot file), so PowerService can also run
+//without a database server. Every implementation keeps the same tables: postal codes, distribution hubs, the postal codes each hub
+//services, the repair log, and the write-behind checkpoints (see HubWriteBehind and RepairLogWriter). Failed reads or writes are reported
+//as SQLExceptions by every implementation, so PowerService handles them the same way
+public interface GridStorage {
+
+    //loads the whole grid model into the supplied (empty) maps, with every downed hub's population effected and impact and every postal
+    //code's repair estimate calculated (see calculateImpacts)
+    void loadGridSnapshot(Map<String, DamagedPostalCodes> postalCodes, Map<String, HubImpact> distributionHubs) throws SQLException;
+
+    //passes every postal code, along with the number of hubs that service it and how many of those hubs are down, to the consumer one row at
+    //a time (the consumer must not use the storage itself)
+    void forEachPostalHubAggregate(Consumer<PostalHubAggregate> consumer) throws SQLException;
+
+    void addPostalCodeToDB(DamagedPostalCodes newPostalCode) throws SQLException;
+
+    //stores that a hub services a postal code (does nothing if that is already stored)
+    void updatePostalHubRelation(String postalCode, String hubId) throws SQLException;
+
+    //stores a new hub (in service, with a repair time of 0) along with the postal codes it services
+    void addDistributionHubToDB(HubImpact newHub) throws SQLException;
+
+    //adds a repair estimate to a hub's repair time and marks it as down
+    void updateHubDamage(String hubId, float repairTime) throws SQLException;
+
+    void updateRepairLog(String employeeId, String hubId, float repairTime, boolean inService) throws SQLException;
+
+    //sets a hub's repair time and in service status after a repair
+    void applyHubRepairToDB(String hubId, float repairTime, boolean inService) throws SQLException;
+
+    //applies a batch of HubWrites all at once, storing lastSequence under checkpointId along with them (unless checkpointId is null)
+    void applyHubWrites(List<HubWrite> writes, String checkpointId, long lastSequence) throws SQLException;
+
+    //returns the last sequence number stored under a checkpoint id by applyHubWrites (0 if none has been stored)
+    long getWriteBehindCheckpoint(String checkpointId) throws SQLException;
+
+    //returns the grid model's generation, which goes up with every write that changes the model (postal codes, hubs, their relations, or a
+    //hub's repair time or status, but not repair log rows). Snapshot files store the generation they were saved at (see GridSnapshotFile)
+    long getGridGeneration() throws SQLException;
+
+    //releases the backend's resources once the program is done with it (and throws the error if it could not save them, see EmbeddedStorage)
+    void close() throws IOException;
+
+
+
+    //method used by the loadGridSnapshot implementations once the postal codes and hubs (with their serviced areas) are in the maps, to
+    //calculate every downed hub's population effected and impact and every postal code's repair estimate from them
+    static void calculateImpacts(Map<String, DamagedPostalCodes> postalCodes, Map<String, HubImpact> distributionHubs){
+        Map<String, Integer> postalHubCounts = new HashMap<>();   //map to store the number of hubs that service each postal code
+        for(HubImpact hub: distributionHubs.values()){
+            for(String postalCode: hub.getServicedAreas()){
+                postalHubCounts.merge(postalCode, 1, Integer::sum);
+            }
+        }
+        for(HubImpact hub: distributionHubs.values()){
+            if(hub.getInService()){   //only downed hubs have an impact and add to their postal codes' repair estimates
+                continue;
+            }
+            float effectedPopulation = 0;
+            for(String postalCode: hub.getServicedAreas()){
+                DamagedPostalCodes postal = postalCodes.get(postalCode);
+                if(postal==null){   //the relation refers to a postal code that has not been added yet (its population counts as 0)
+                    continue;
+                }
+                //the fraction of this postal code's population that is affected by this hub's outage (same formula as PostalHubIndex's calculatePopulationEffected)
+                float postalHubs = (float) postalHubCounts.get(postalCode);
+                effectedPopulation += ((float) postal.getPopulation()) * (1/postalHubs);
+                //add this hub's repair estimate to this postal code's total repair time (same as PostalHubIndex's calculatePostalRepairTime)
+                postal.setRepairEstimate(postal.getRepairEstimate() + hub.getRepairTime());
+            }
+            hub.setPopulationEffected(effectedPopulation);
+            hub.setImpact(effectedPopulation/hub.getRepairTime());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 import java.util.*;
 
 //this class stores distribution hubs
-//that is to say, each distribution hub will be stored in an object of this class
+//that is to say, each distribution hub will be stored in an object of this class.
+//Once a hub is indexed by PostalHubIndex, its location, serviced areas, repair time, in service status, impact and population effected are
+//stored in the index's GridColumnStore, and this object becomes a view over that row (the fields below only hold the values until then)
 public class HubImpact {
 
     private String hubId;
@@ -11,6 +13,8 @@ public class HubImpact {
     private Set<String> servicedAreas;
     private float impact;
     private float populationEffected;
+    private GridColumnStore store;   //the column store that holds this hub's values (null until the hub is indexed)
+    private int symbolId;   //the hub's id, which is its row in the store (-1 until the hub is indexed)
 
     HubImpact(String hubId, Point location, Set<String> servicedAreas, float repairTime, boolean inService, float impact, float populationEffected){
         this.hubId = hubId;
@@ -20,37 +24,79 @@ public class HubImpact {
         this.inService = inService;
         this.impact = impact;
         this.populationEffected = populationEffected;
+        this.store = null;
+        this.symbolId = -1;
     }
 
     String getHubId(){
         return hubId;
     }
 
+    //returns the hub's location (once the hub is indexed, a new Point with the store's coordinates)
     Point getLocation(){
+        if(store!=null){
+            return new Point(getX(), getY());
+        }
         return location;
     }
 
+    int getX(){
+        if(store!=null){
+            return store.getX(symbolId);
+        }
+        return location.getX();
+    }
+
+    int getY(){
+        if(store!=null){
+            return store.getY(symbolId);
+        }
+        return location.getY();
+    }
+
     float getRepairTime(){
+        if(store!=null){
+            return store.getRepairTime(symbolId);
+        }
         return repairTime;
     }
 
     boolean getInService(){
+        if(store!=null){
+            return store.getInService(symbolId);
+        }
         return inService;
     }
 
+    //returns the postal codes this hub services. Once the hub is indexed, this is a read-only view over the store's postal code ids (see
+    //GridColumnStore's getServicedAreas), since the serviced areas of an indexed hub never change
     Set<String> getServicedAreas(){
         return servicedAreas;
     }
 
     float getImpact(){
+        if(store!=null){
+            return store.getImpact(symbolId);
+        }
         return impact;
     }
 
     float getPopulationEffected(){
+        if(store!=null){
+            return store.getPopulationEffected(symbolId);
+        }
         return populationEffected;
     }
 
+    int getSymbolId(){
+        return symbolId;
+    }
+
     void setRepairTime(float repairTime){
+        if(store!=null){
+            store.setRepairTime(symbolId, repairTime);
+            return;
+        }
         this.repairTime = repairTime;
     }
 
@@ -59,14 +105,35 @@ public class HubImpact {
     }
 
     void setInService(boolean inService){
+        if(store!=null){
+            store.setInService(symbolId, inService);
+            return;
+        }
         this.inService = inService;
     }
 
     void setImpact(float impact){
+        if(store!=null){
+            store.setImpact(symbolId, impact);
+            return;
+        }
         this.impact = impact;
     }
 
     void setPopulationEffected(float populationEffected){
+        if(store!=null){
+            store.setPopulationEffected(symbolId, populationEffected);
+            return;
+        }
         this.populationEffected = populationEffected;
     }
-}
+
+    //method used by PostalHubIndex once it has copied this hub's values into a store's row. From then on, the values are read from and
+    //written to that row
+    void attach(GridColumnStore store, int symbolId){
+        this.store = store;
+        this.symbolId = symbolId;
+        this.location = null;
+        this.servicedAreas = store.getServicedAreas(symbolId);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+import java.util.*;
+
+//this class is a priority queue of the downed hubs, ordered by their impacts (highest impact at the top). Unlike java's PriorityQueue, it
+//remembers where each hub sits in the heap, so that a hub can be removed or moved after its impact changes in O(log n) time. PostalHubIndex
+//keeps it up to date whenever a hub goes down, is repaired, or has its impact recalculated, which lets fixOrder read the most impactful
+//hubs straight off the top of the heap instead of ranking every downed hub on each call
+public class HubImpactHeap {
+
+    private List<HubImpact> heap;   //the heap itself, stored as an array (children of index i are at 2i+1 and 2i+2)
+    private int[] positions;   //each hub's current index in the heap, by the hub's interned id (-1 if the hub is not in the heap)
+    private float[] keys;   //the impact each hub was sorted by, by the hub's interned id (a hub's impact can change before it is re-sorted)
+
+
+    HubImpactHeap(){
+        heap = new ArrayList<>();
+        positions = new int[16];
+        Arrays.fill(positions, -1);
+        keys = new float[16];
+    }
+
+
+
+    //method to add a hub to the heap, or to move it to its new position if it is already in the heap and its impact has changed.
+    //The hub must have been interned by PostalHubIndex (its interned id is used to find it in the heap)
+    void update(HubImpact hub){
+        int id = hub.getSymbolId();
+        if(id>=positions.length){
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(2*oldLength, id+1));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+            keys = Arrays.copyOf(keys, positions.length);
+        }
+        int position = positions[id];
+        float impact = hub.getImpact();
+        if(position==-1){   //new hub, so add it at the bottom of the heap and move it up
+            heap.add(hub);
+            positions[id] = heap.size()-1;
+            keys[id] = impact;
+            siftUp(heap.size()-1);
+            return;
+        }
+        float oldImpact = keys[id];
+        keys[id] = impact;
+        if(impact>oldImpact){   //impact went up, so the hub may need to move towards the top
+            siftUp(position);
+        }
+        else if(impact<oldImpact){   //impact went down, so the hub may need to move towards the bottom
+            siftDown(position);
+        }
+    }
+
+
+
+    //method to remove a hub from the heap (i.e., when it is back in service)
+    void remove(HubImpact hub){
+        int id = hub.getSymbolId();
+        if(id<0 || id>=positions.length || positions[id]==-1){   //hub is not in the heap
+            return;
+        }
+        int position = positions[id];
+        positions[id] = -1;
+        HubImpact last = heap.remove(heap.size()-1);
+        if(position<heap.size()){   //the removed hub was not the last one, so put the last hub in its place and restore the heap order
+            heap.set(position, last);
+            positions[last.getSymbolId()] = position;
+            siftUp(position);
+            siftDown(positions[last.getSymbolId()]);
+        }
+    }
+
+
+
+    int size(){
+        return heap.size();
+    }
+
+
+
+    //returns the <limit> hubs with the highest impacts in descending order, along with any further hubs that tie in impact with the hub
+    //at the limit. Only the hubs that are returned (and their children) are visited: a second, small priority queue holds the "frontier"
+    //of heap positions that could come next, which makes this O(k log k) for k returned hubs
+    List<HubImpact> top(int limit){
+        List<HubImpact> topHubs = new ArrayList<>();
+        if(heap.isEmpty()){
+            return topHubs;
+        }
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(new Comparator<Integer>(){
+            public int compare(Integer a, Integer b){
+                return compareAt(a, b);
+            }
+        });
+        frontier.add(0);
+        float valueAtLimit = -1;   //variable to store impact of hub at limit
+        while(!frontier.isEmpty()){
+            int position = frontier.poll();
+            HubImpact hub = heap.get(position);
+            float impact = keys[hub.getSymbolId()];
+            if(topHubs.size()>=limit && impact!=valueAtLimit){   //hub is passed the limit and does not tie with the hub at the limit
+                break;
+            }
+            topHubs.add(hub);
+            if(topHubs.size()==limit){   //hub is at the limit, so store its impact
+                valueAtLimit = impact;
+            }
+            if(2*position+1<heap.size()){
+                frontier.add(2*position+1);
+            }
+            if(2*position+2<heap.size()){
+                frontier.add(2*position+2);
+            }
+        }
+        return topHubs;
+    }
+
+
+
+    //method to compare the hubs at two heap positions. Higher impacts come first, and hubs with equal impacts are ordered by their identifiers
+    //so that the order of tied hubs does not depend on the order in which they were added
+    private int compareAt(int a, int b){
+        HubImpact hubA = heap.get(a);
+        HubImpact hubB = heap.get(b);
+        int byImpact = Float.compare(keys[hubB.getSymbolId()], keys[hubA.getSymbolId()]);
+        if(byImpact!=0){
+            return byImpact;
+        }
+        return hubA.getHubId().compareTo(hubB.getHubId());
+    }
+
+
+
+    //method to move the hub at a position up the heap until its parent comes before it
+    private void siftUp(int position){
+        while(position>0){
+            int parent = (position-1)/2;
+            if(compareAt(position, parent)>=0){
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+
+
+    //method to move the hub at a position down the heap until both of its children come after it
+    private void siftDown(int position){
+        while(true){
+            int first = position;
+            int left = 2*position+1;
+            int right = 2*position+2;
+            if(left<heap.size() && compareAt(left, first)<0){
+                first = left;
+            }
+            if(right<heap.size() && compareAt(right, first)<0){
+                first = right;
+            }
+            if(first==position){
+                break;
+            }
+            swap(position, first);
+            position = first;
+        }
+    }
+
+
+
+    //method to swap the hubs at two heap positions
+    private void swap(int a, int b){
+        HubImpact hubA = heap.get(a);
+        HubImpact hubB = heap.get(b);
+        heap.set(a, hubB);
+        heap.set(b, hubA);
+        positions[hubB.getSymbolId()] = a;
+        positions[hubA.getSymbolId()] = b;
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.*;
+
+//this class indexes the distribution hubs by their locations. It is used by PowerService's addDistributionHub to check whether a hub already
+//exists at a location, and by repairPlan to find the hubs within <maxDistance> of startHub, without having to go through every hub.
+//Hubs are stored in two hash maps: one keyed by their exact x,y coordinates (for the location check), and one that buckets them into square
+//cells of cellSize x cellSize (for the distance queries, which only need to look at the cells that overlap the search circle)
+public class HubSpatialIndex {
+
+    private int cellSize;   //width and height of each cell of the bucketing grid
+    private Map<Long, HubImpact> hubsByLocation;   //map to store each hub by its exact coordinates
+    private Map<Long, List<HubImpact>> cells;   //map to store the hubs that fall into each non-empty cell of the bucketing grid
+
+
+    HubSpatialIndex(int cellSize){
+        this.cellSize = cellSize;
+        hubsByLocation = new HashMap<>();
+        cells = new HashMap<>();
+    }
+
+
+
+    //method to add a hub to the index (used when hubs are loaded from the database and during addDistributionHub)
+    void add(HubImpact hub){
+        hubsByLocation.put(packCoordinates(hub.getX(), hub.getY()), hub);
+        long cell = packCoordinates(Math.floorDiv(hub.getX(), cellSize), Math.floorDiv(hub.getY(), cellSize));
+        cells.computeIfAbsent(cell, k -> new ArrayList<>()).add(hub);
+    }
+
+
+
+    //returns the hub at the exact coordinates of a location (null if there is no hub there)
+    HubImpact getHubAt(Point location){
+        return hubsByLocation.get(packCoordinates(location.getX(), location.getY()));
+    }
+
+
+
+    //returns every hub whose distance from the center location (centerX, centerY) is less than or equal to maxDistance. Only the cells that overlap the square
+    //around the search circle are looked at. If that square covers more cells than there are non-empty cells (i.e., a very large maxDistance),
+    //then it is cheaper to just go through the non-empty cells, so that is done instead
+    List<HubImpact> findHubsWithinDistance(int centerX, int centerY, int maxDistance){
+        List<HubImpact> hubsInRange = new ArrayList<>();
+        long minCellX = Math.floorDiv((long) centerX - maxDistance, cellSize);
+        long maxCellX = Math.floorDiv((long) centerX + maxDistance, cellSize);
+        long minCellY = Math.floorDiv((long) centerY - maxDistance, cellSize);
+        long maxCellY = Math.floorDiv((long) centerY + maxDistance, cellSize);
+        double cellsToVisit = ((double) (maxCellX-minCellX+1)) * ((double) (maxCellY-minCellY+1));
+        if(cellsToVisit>cells.size()){
+            for(List<HubImpact> cell: cells.values()){
+                addHubsWithinDistance(cell, centerX, centerY, maxDistance, hubsInRange);
+            }
+            return hubsInRange;
+        }
+        for(long cellX=minCellX; cellX<=maxCellX; cellX++){
+            for(long cellY=minCellY; cellY<=maxCellY; cellY++){
+                List<HubImpact> cell = cells.get(packCoordinates((int) cellX, (int) cellY));
+                if(cell!=null){
+                    addHubsWithinDistance(cell, centerX, centerY, maxDistance, hubsInRange);
+                }
+            }
+        }
+        return hubsInRange;
+    }
+
+
+
+    //returns the distance between two locations (ax, ay) and (bx, by) (Pythagorean theorem, c^2 = a^2 + b^2)
+    static double distance(int ax, int ay, int bx, int by){
+        return Math.sqrt(Math.pow((bx - ax), 2) + Math.pow((by - ay), 2));
+    }
+
+
+
+    //method used during findHubsWithinDistance to add the hubs of a cell that are within maxDistance of the center location
+    private void addHubsWithinDistance(List<HubImpact> cell, int centerX, int centerY, int maxDistance, List<HubImpact> hubsInRange){
+        for(HubImpact hub: cell){
+            if(distance(centerX, centerY, hub.getX(), hub.getY())<=(double) maxDistance){
+                hubsInRange.add(hub);
+            }
+        }
+    }
+
+
+
+    //method to combine two int coordinates into a single long key (x in the upper 32 bits, y in the lower 32 bits)
+    private static long packCoordinates(int x, int y){
+        return (((long) x) << 32) | (((long) y) & 0xffffffffL);
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+//this class stores one database write made by hubDamage or hubRepair while write-behind mode is on (see HubWriteBehind): the write is
+//appended to the journal file and applied to the database later by the writer thread. RepairLogWriter stores its repair log entries as
+//REPAIR_LOG writes as well. A write's type decides which of its fields are used:
+//  DAMAGE:      hubId, repairTime (the repair estimate added to the hub)   -> Database's updateHubDamage
+//  REPAIR:      hubId, repairTime, inService (the hub's new values)      -> Database's applyHubRepairToDB
+//  REPAIR_LOG:  employeeId, hubId, repairTime, inService                 -> Database's updateRepairLog
+//Journal entries (see toEntry) are also used by RepairLogWriter's segment files. Each one is stored as its length (int), the CRC32 of its
+//bytes (int), then the write itself, so an entry that was only partly written when the program stopped fails its length or CRC check
+public class HubWrite {
+
+    static final byte DAMAGE = 1;
+    static final byte REPAIR = 2;
+    static final byte REPAIR_LOG = 3;
+    private static final int MAX_ENTRY_LENGTH = 8+1+(2+65535)+1+(2+65535)+4+1;   //longest possible entry (without its length and CRC), with both ids at the longest writeUTF allows
+    private static final int READ_BUFFER_SIZE = 64*1024;   //readEntries reads files 64KB at a time
+
+    private long sequence;   //position of this write in the journal (assigned by HubWriteBehind or RepairLogWriter, starting at 1)
+    private byte type;
+    private String hubId;
+    private String employeeId;   //null unless this write is a REPAIR_LOG
+    private float repairTime;
+    private boolean inService;
+
+    HubWrite(byte type, String hubId, String employeeId, float repairTime, boolean inService){
+        this.sequence = 0;
+        this.type = type;
+        this.hubId = hubId;
+        this.employeeId = employeeId;
+        this.repairTime = repairTime;
+        this.inService = inService;
+    }
+
+    long getSequence(){
+        return sequence;
+    }
+
+    byte getType(){
+        return type;
+    }
+
+    String getHubId(){
+        return hubId;
+    }
+
+    String getEmployeeId(){
+        return employeeId;
+    }
+
+    float getRepairTime(){
+        return repairTime;
+    }
+
+    boolean getInService(){
+        return inService;
+    }
+
+    void setSequence(long sequence){
+        this.sequence = sequence;
+    }
+
+
+
+    //method used by HubWriteBehind's writer thread to fold a later write of the same hub into a copy of this one, so that the two are written
+    //to the database as a single update. Returns the combined write, or null if the two cannot be combined. Damage estimates add up, and a
+    //repair that leaves the hub down is overwritten by the hub's next repair (whose values are absolute). Repair log rows are never combined
+    HubWrite coalesce(HubWrite later){
+        if(type==DAMAGE && later.type==DAMAGE){
+            HubWrite combined = new HubWrite(DAMAGE, hubId, null, repairTime + later.repairTime, false);
+            combined.sequence = later.sequence;
+            return combined;
+        }
+        if(type==REPAIR && !inService && later.type==REPAIR){
+            return later;
+        }
+        return null;
+    }
+
+
+
+    //method to encode this write as a journal entry (see the class comment)
+    byte[] toEntry() throws IOException{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);   //length and CRC placeholders
+        out.writeInt(0);
+        out.writeLong(sequence);
+        out.writeByte(type);
+        out.writeUTF(hubId);
+        out.writeBoolean(employeeId!=null);
+        if(employeeId!=null){
+            out.writeUTF(employeeId);
+        }
+        out.writeFloat(repairTime);
+        out.writeBoolean(inService);
+        ByteBuffer entry = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), 8, entry.capacity()-8);
+        entry.putInt(0, entry.capacity()-8);
+        entry.putInt(4, (int) crc.getValue());
+        return entry.array();
+    }
+
+
+
+    //method to read a file of journal entries from its start, passing each entry to the consumer. The file is read through a small buffer
+    //(it is never loaded whole). Returns the length of the file's complete entries. An entry that cannot be read is only accepted as the end
+    //of the file (an entry that was being written when the program stopped, which the caller truncates). If anything follows it, entries
+    //that were acknowledged would be lost, so an IOException is thrown instead
+    static long readEntries(FileChannel file, Consumer<HubWrite> consumer) throws IOException{
+        long fileSize = file.size();
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        in.limit(0);
+        long bufferStart = 0;   //file position of the buffer's first byte
+        long readPosition = 0;   //file position of the next byte to read into the buffer
+        while(true){
+            HubWrite entry;
+            while((entry = fromEntry(in))!=null){
+                consumer.accept(entry);
+            }
+            if(in.remaining()>=8){   //stop at an entry that is all in the buffer (or claims an impossible length) but still cannot be read
+                int length = in.getInt(in.position());
+                if(length<0 || length>MAX_ENTRY_LENGTH || in.remaining()>=8+length){
+                    break;
+                }
+            }
+            if(readPosition>=fileSize){
+                break;
+            }
+            bufferStart += in.position();
+            in.compact();
+            if(!in.hasRemaining()){   //the next entry is larger than the buffer
+                ByteBuffer larger = ByteBuffer.allocate(2*in.capacity());
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+            int read = file.read(in, readPosition);
+            if(read<0){
+                break;
+            }
+            readPosition += read;
+            in.flip();
+        }
+        long validLength = bufferStart + in.position();
+        long rest = fileSize - validLength;   //bytes left after the complete entries
+        if(rest>=8){
+            int length = in.getInt(in.position());
+            if(length<0 || length>MAX_ENTRY_LENGTH || 8L+length<rest){
+                throw new IOException("Journal entry at byte " + validLength + " is corrupt, and other entries follow it!");
+            }
+        }
+        return validLength;
+    }
+
+
+
+    //method to decode the journal entry at a buffer's position (moving the position past it). Returns null (leaving the position where it
+    //was) if the rest of the buffer does not hold a complete, valid entry
+    static HubWrite fromEntry(ByteBuffer in) throws IOException{
+        int start = in.position();
+        if(in.remaining()<8){
+            return null;
+        }
+        int length = in.getInt();
+        int checksum = in.getInt();
+        if(length<0 || length>in.remaining()){
+            in.position(start);
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(in.array(), in.arrayOffset()+in.position(), length);
+        if((int) crc.getValue()!=checksum){
+            in.position(start);
+            return null;
+        }
+        DataInputStream entry = new DataInputStream(new ByteArrayInputStream(in.array(), in.arrayOffset()+in.position(), length));
+        in.position(in.position()+length);
+        long sequence = entry.readLong();
+        byte type = entry.readByte();
+        String hubId = entry.readUTF();
+        String employeeId = null;
+        if(entry.readBoolean()){
+            employeeId = entry.readUTF();
+        }
+        HubWrite write = new HubWrite(type, hubId, employeeId, entry.readFloat(), entry.readBoolean());
+        write.sequence = sequence;
+        return write;
+    }
+}
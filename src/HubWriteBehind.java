@@ -0,0 +1,285 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+
+//this class is used by PowerService's write-behind mode (see PowerService's enableWriteBehind). Instead of hubDamage and hubRepair waiting
+//for their database writes, each write is appended to a local journal file (and forced to disk) and the call returns. A background writer
+//thread then takes the journaled writes in order, combines the writes of the same hub where it can (see HubWrite's coalesce), and writes
+//each batch to the database in one transaction (see Database's applyHubWrites). That transaction also stores the sequence number of the
+//batch's last write, so if the program stops before every write reaches the database, the writes that did not are read back from the
+//journal the next time write-behind mode is turned on. The journal is cleared whenever the writer has caught up. A failed batch is retried,
+//unless retrying cannot help (see isPermanent), in which case the writer stops and later appends and flushes fail with the batch's error.
+//The journal holds one entry per write (see HubWrite's toEntry). An entry that was only partly written when the program stopped is dropped
+//(it was never acknowledged to the caller), but a journal with an unreadable entry anywhere before its end is refused
+public class HubWriteBehind {
+
+    private static final int MAX_BATCH_SIZE = 512;   //maximum number of journaled writes written to the database in one transaction
+    private static final long RETRY_DELAY = 5000;   //the writer waits 5 seconds before trying a failed batch again
+
+    private GridStorage db;
+    private String checkpointId;   //id under which the last written sequence number is stored in the database (the journal's absolute path)
+    private FileChannel journal;
+    private final Object lock;   //guards every field below (and appending to or clearing the journal)
+    private ArrayDeque<HubWrite> pending;   //journaled writes that have not been written to the database, in journal order
+    private List<HubWrite> recovered;   //writes read back from the journal when this object was created (see getRecoveredWrites)
+    private long lastSequence;   //sequence number of the last journaled write
+    private long writtenSequence;   //sequence number of the last write that is in the database
+    private SQLException lastError;   //error of the writer's last failed batch (null once a batch succeeds)
+    private SQLException fatalError;   //error of a batch that can never be written (see isPermanent), which stopped the writer (null if none)
+    private boolean closed;
+    private Thread writer;
+
+
+    //opens (or creates) the journal file and reads back the writes in it that have not been written to the database yet. The writer
+    //thread is not started until start is called
+    HubWriteBehind(GridStorage db, String journalFile) throws IOException, SQLException{
+        this.db = db;
+        Path file = Paths.get(journalFile).toAbsolutePath();
+        checkpointId = file.toString();
+        lock = new Object();
+        pending = new ArrayDeque<>();
+        recovered = new ArrayList<>();
+        writtenSequence = db.getWriteBehindCheckpoint(checkpointId);
+        lastSequence = writtenSequence;
+        closed = false;
+        journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try{
+            long validLength = readJournal();
+            journal.truncate(validLength);   //drop a partly written entry at the end (if any)
+            journal.position(validLength);
+        }
+        catch(IOException e){
+            journal.close();
+            throw e;
+        }
+    }
+
+
+
+    //method used by the constructor to read the journal's entries, keeping the ones that come after the database's checkpoint. Returns the
+    //length of the journal's complete entries (only a partly written entry at the end is dropped, see HubWrite's readEntries)
+    private long readJournal() throws IOException{
+        return HubWrite.readEntries(journal, write -> {
+            lastSequence = Math.max(lastSequence, write.getSequence());
+            if(write.getSequence()>writtenSequence){
+                pending.add(write);
+                recovered.add(write);
+            }
+        });
+    }
+
+
+
+    //returns the writes that were read back from the journal (in order). They are in the journal but not in the database, so the model
+    //loaded from the database does not reflect them yet. They are written to the database once the writer thread starts
+    List<HubWrite> getRecoveredWrites(){
+        return recovered;
+    }
+
+
+
+    //starts the writer thread
+    void start(){
+        writer = new Thread(this::run, "HubWriteBehind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+
+    //method to append writes to the journal and queue them for the writer thread. The writes are journaled with a single write and a single
+    //force to disk (before returning), so a call's writes (i.e., a repair's RepairLog row and hub update) are stored together or not at all
+    void append(List<HubWrite> writes) throws IOException{
+        synchronized(lock){
+            if(closed){
+                throw new IOException("Write-behind journal is closed!");
+            }
+            if(fatalError!=null){   //the writes would never reach the database
+                throw new IOException("Write-behind writer stopped after a batch could not be written!\nDetails: " + fatalError.getMessage());
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long sequence = lastSequence;
+            for(HubWrite write: writes){
+                sequence++;
+                write.setSequence(sequence);
+                bytes.write(write.toEntry());
+            }
+            ByteBuffer out = ByteBuffer.wrap(bytes.toByteArray());
+            long start = journal.position();
+            try{
+                while(out.hasRemaining()){
+                    journal.write(out);
+                }
+                journal.force(false);
+            }
+            catch(IOException e){
+                journal.truncate(start);   //so the next writes do not follow partly written ones (which would make the journal unreadable on recovery)
+                journal.position(start);
+                throw e;
+            }
+            lastSequence = sequence;
+            pending.addAll(writes);
+            lock.notifyAll();
+        }
+    }
+
+
+
+    //method to wait until every write appended so far is in the database. Throws the writer's error if a batch fails while waiting
+    void flush() throws SQLException{
+        synchronized(lock){
+            long target = lastSequence;
+            lastError = null;
+            while(writtenSequence<target){
+                if(fatalError!=null){
+                    throw fatalError;
+                }
+                if(lastError!=null){
+                    throw lastError;
+                }
+                if(closed){
+                    throw new SQLException("Write-behind writer is closed!");
+                }
+                try{
+                    lock.wait();
+                }
+                catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for the write-behind writer!");
+                }
+            }
+        }
+    }
+
+
+
+    //method to stop the writer thread once it has written the pending writes (or failed to). Writes that could not be written stay in the
+    //journal and are read back the next time write-behind mode is turned on with the same journal file
+    void close(){
+        synchronized(lock){
+            closed = true;
+            lock.notifyAll();
+        }
+        if(writer!=null){
+            try{
+                writer.join();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+        try{
+            journal.close();
+        }
+        catch(IOException e){
+            //nothing to do, every entry was already forced to disk
+        }
+    }
+
+
+
+    //the writer thread's loop
+    private void run(){
+        while(true){
+            List<HubWrite> batch = new ArrayList<>();
+            synchronized(lock){
+                while(pending.isEmpty() && !closed){
+                    try{
+                        lock.wait();
+                    }
+                    catch(InterruptedException e){
+                        return;
+                    }
+                }
+                if(pending.isEmpty()){   //closed, and everything has been written
+                    return;
+                }
+                Iterator<HubWrite> it = pending.iterator();
+                while(it.hasNext() && batch.size()<MAX_BATCH_SIZE){
+                    batch.add(it.next());
+                }
+            }
+            long batchSequence = batch.get(batch.size()-1).getSequence();
+            try{
+                db.applyHubWrites(coalesce(batch), checkpointId, batchSequence);
+            }
+            catch(SQLException e){
+                synchronized(lock){
+                    lastError = e;
+                    lock.notifyAll();
+                    if(isPermanent(e)){   //retrying would block every later write forever, so the writer stops and every later call fails with this error
+                        fatalError = e;
+                        return;
+                    }
+                    if(closed){   //give up, the writes stay in the journal
+                        return;
+                    }
+                    try{
+                        lock.wait(RETRY_DELAY);
+                    }
+                    catch(InterruptedException interrupted){
+                        return;
+                    }
+                }
+                continue;
+            }
+            synchronized(lock){
+                for(int i=0; i<batch.size(); i++){
+                    pending.poll();
+                }
+                writtenSequence = batchSequence;
+                lastError = null;
+                if(pending.isEmpty()){   //every journaled write is in the database, so the journal can be cleared
+                    try{
+                        journal.truncate(0);
+                        journal.position(0);
+                    }
+                    catch(IOException e){
+                        //the journal keeps its entries, which is safe (entries up to the checkpoint are skipped when it is read back)
+                    }
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+
+
+    //method to tell whether a failed batch can never be written: SQLState classes 22 (data exception, i.e., a value that does not fit its
+    //column) and 23 (integrity constraint violation) fail the same way on every retry, unlike errors such as a lost connection. The batch
+    //stays in the journal (it is read back the next time write-behind mode is turned on). RepairLogWriter uses the same rule
+    static boolean isPermanent(SQLException e){
+        String state = e.getSQLState();
+        return state!=null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+
+
+    //method used by the writer thread to combine the writes of each hub that follow each other (with no other write of the same hub in
+    //between) into one write where possible. Writes of different hubs touch different rows (and the downHubCount updates of PostalCodes only
+    //add or subtract), so the order between them does not matter
+    private List<HubWrite> coalesce(List<HubWrite> batch){
+        List<HubWrite> writes = new ArrayList<>();
+        Map<String, Integer> lastWriteOfHub = new HashMap<>();   //position in writes of each hub's last DAMAGE or REPAIR write
+        for(HubWrite write: batch){
+            if(write.getType()==HubWrite.REPAIR_LOG){
+                writes.add(write);
+                continue;
+            }
+            Integer position = lastWriteOfHub.get(write.getHubId());
+            if(position!=null){
+                HubWrite combined = writes.get(position).coalesce(write);
+                if(combined!=null){
+                    writes.set(position, combined);
+                    continue;
+                }
+            }
+            lastWriteOfHub.put(write.getHubId(), writes.size());
+            writes.add(write);
+        }
+        return writes;
+    }
+}
@@ -0,0 +1,16 @@
+-- brings a database created from an earlier BaseTables.sql up to date: adds the hubCount/downHubCount columns of PostalCodes (which
+-- Database keeps up to date from then on). No index is needed on hubId, since InnoDB already indexes the foreign keys on it
+
+alter table PostalCodes
+add column hubCount int not null default 0,
+add column downHubCount int not null default 0;
+
+update PostalCodes
+left join (
+select PostalHubRelation.postalId, count(*) as hubCount, sum(DistributionHubs.inService = false) as downHubCount
+from PostalHubRelation
+join DistributionHubs on DistributionHubs.id = PostalHubRelation.hubId
+group by PostalHubRelation.postalId
+) as counts on counts.postalId = PostalCodes.id
+set PostalCodes.hubCount = coalesce(counts.hubCount, 0),
+PostalCodes.downHubCount = coalesce(counts.downHubCount, 0);
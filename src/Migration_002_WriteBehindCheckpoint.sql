@@ -0,0 +1,6 @@
+-- adds the table in which Database stores the last write-behind journal entry written to the database (see HubWriteBehind)
+
+create table WriteBehindCheckpoint(
+id varchar(255) not null primary key,
+lastSequence bigint not null
+);
@@ -0,0 +1,10 @@
+-- adds the table that holds the grid model's generation, which Database increases at the end of every transaction that changes the model
+-- (see GridStorage's getGridGeneration). Snapshot files store the generation they were saved at, so PowerService refuses a snapshot that
+-- is older than the database. Snapshots saved before this migration use an older file version and are refused as well
+
+create table GridGeneration(
+id int not null primary key,
+generation bigint not null
+);
+
+insert into GridGeneration values(1, 0);
@@ -0,0 +1,90 @@
+import java.sql.*;
+import java.util.*;
+
+//this class wraps a single MySQL connection that is owned by a ConnectionPool. Besides the connection itself, it keeps track of
+//when the connection was last handed out or returned, which the pool uses for validation, idle eviction, and leak detection.
+//It also caches the connection's prepared statements (one per SQL string), so each query is only prepared once per connection and the
+//server can reuse its plan every time the query runs again
+public class PooledConnection {
+
+    private Connection connection;   //the underlying JDBC connection (already switched to the right schema by the pool)
+    private long lastUsed;   //time (in milliseconds) at which this connection was last returned to the pool
+    private long borrowedAt;   //time (in milliseconds) at which this connection was borrowed (0 if it is currently idle)
+    private Throwable borrowTrace;   //stack trace of the code that borrowed this connection (only kept if the pool's leak tracing is on)
+    private Map<String, PreparedStatement> statements;   //map to store each SQL string and its prepared statement on this connection
+
+    PooledConnection(Connection connection){
+        this.connection = connection;
+        this.lastUsed = System.currentTimeMillis();
+        this.borrowedAt = 0;
+        this.borrowTrace = null;
+        this.statements = new HashMap<>();
+    }
+
+    Connection getConnection(){
+        return connection;
+    }
+
+    long getLastUsed(){
+        return lastUsed;
+    }
+
+    long getBorrowedAt(){
+        return borrowedAt;
+    }
+
+    Throwable getBorrowTrace(){
+        return borrowTrace;
+    }
+
+
+    //method used by ConnectionPool when this connection is handed out to a caller (capturing a stack trace costs a stack walk per borrow,
+    //so it is only done when leak tracing is on)
+    void markBorrowed(boolean leakTracing){
+        borrowedAt = System.currentTimeMillis();
+        borrowTrace = leakTracing ? new Throwable("Connection borrowed here") : null;
+    }
+
+
+    //method used by ConnectionPool when this connection is returned by a caller
+    void markReturned(){
+        lastUsed = System.currentTimeMillis();
+        borrowedAt = 0;
+        borrowTrace = null;
+    }
+
+
+    //returns this connection's prepared statement for an SQL string (with its parameters cleared), preparing it the first time it is used.
+    //The statement stays open for the next caller, so callers must close the result sets they get from it, but never the statement itself
+    PreparedStatement prepareStatement(String sql) throws SQLException{
+        PreparedStatement statement = statements.get(sql);
+        if(statement==null || statement.isClosed()){
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        else{
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+
+    //closes the underlying connection (and its cached statements), ignoring any errors (the connection is being thrown away anyway)
+    void closeQuietly(){
+        for(PreparedStatement statement: statements.values()){
+            try{
+                statement.close();
+            }
+            catch(SQLException e){
+                //nothing to do, the connection is discarded either way
+            }
+        }
+        statements.clear();
+        try{
+            connection.close();
+        }
+        catch(SQLException e){
+            //nothing to do, the connection is discarded either way
+        }
+    }
+}
@@ -0,0 +1,39 @@
+//this class stores one row of Database's postal-hub aggregate query: a postal code's population and area along with the number of hubs
+//that service it and how many of those hubs are down. It is used by PowerService's reports when pushdown queries are turned on
+//(see PowerService's setPushdownQueries)
+public class PostalHubAggregate {
+
+    private String postalCodeId;
+    private int population;
+    private int area;
+    private int hubCount;   //number of hubs that service this postal code
+    private int downHubCount;   //number of those hubs that are down (not in service)
+
+    PostalHubAggregate(String postalCodeId, int population, int area, int hubCount, int downHubCount){
+        this.postalCodeId = postalCodeId;
+        this.population = population;
+        this.area = area;
+        this.hubCount = hubCount;
+        this.downHubCount = downHubCount;
+    }
+
+    String getPostalCodeId(){
+        return postalCodeId;
+    }
+
+    int getPopulation(){
+        return population;
+    }
+
+    int getArea(){
+        return area;
+    }
+
+    int getHubCount(){
+        return hubCount;
+    }
+
+    int getDownHubCount(){
+        return downHubCount;
+    }
+}
\ No newline at end of file
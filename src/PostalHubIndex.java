@@ -0,0 +1,301 @@
+import java.util.*;
+
+//this class is PowerService's in-memory copy of the PostalHubRelation bridge table. It stores the many-to-many relationship between postal
+//codes and the hubs that service them in both directions (postal code -> hubs servicing it, and hub -> postal codes it services), along with
+//the number of downed hubs servicing each postal code. PowerService keeps it up to date whenever a postal code or hub is added, or a hub
+//is damaged or repaired, which allows every report (peopleOutOfService, fixOrder, underservedPostalByPopulation...) to be answered
+//without querying the database.
+//The index also maintains the derived values of the model: each downed hub's population effected and impact, and each postal code's
+//repair estimate. When something changes, only the values that depend on it are recalculated (i.e., the changed hub, the postal codes
+//it services, and the other downed hubs servicing those postal codes), so reports never have to recalculate them for the whole model.
+//Every postal code is interned to a dense integer id (see SymbolTable) and every hub gets the next row of the store once, when it is indexed, and the relations are stored in
+//lists and arrays indexed by those ids, so the recalculations above never hash or compare identifier strings. The values of the hubs and
+//postal codes themselves (and the hub->postal codes relation) are moved into a GridColumnStore at the same time
+public class PostalHubIndex {
+
+    private Map<String, DamagedPostalCodes> postalCodes;   //PowerService's postalCodes map
+    private Map<String, HubImpact> distributionHubs;   //PowerService's distributionHubs map
+    private SymbolTable postalIds;   //interned ids of the postal codes (including postal codes that are serviced by a hub but have not been added yet)
+    private GridColumnStore store;   //the values of every indexed hub and postal code, the postal codes each hub services, and each postal code's hub counts
+    private DamagedPostalCodes[] postals;   //each postal code id's postal code (null if it has not been added yet)
+    private List<List<HubImpact>> postalHubs;   //the hubs that service each postal code id
+    private HubImpactHeap downHubs;   //all hubs that are currently down (not in service), ordered by their impacts (highest impact first)
+    private TreeSet<DamagedPostalCodes> damagedPostals;   //postal codes with a repair estimate above 0, sorted by repair estimate in descending order (ties by postal code)
+    private int servicedPopulation;   //total population of the (added) postal codes that are serviced by at least one hub
+
+
+    PostalHubIndex(Map<String, DamagedPostalCodes> postalCodes, Map<String, HubImpact> distributionHubs){
+        this.postalCodes = postalCodes;
+        this.distributionHubs = distributionHubs;
+        postalIds = new SymbolTable();
+        store = new GridColumnStore(postalIds);
+        postals = new DamagedPostalCodes[16];
+        postalHubs = new ArrayList<>();
+        downHubs = new HubImpactHeap();
+        servicedPopulation = 0;
+        damagedPostals = new TreeSet<>(new Comparator<DamagedPostalCodes>(){
+            public int compare(DamagedPostalCodes a, DamagedPostalCodes b){
+                int byEstimate = Float.compare(b.getRepairEstimate(), a.getRepairEstimate());
+                if(byEstimate!=0){
+                    return byEstimate;
+                }
+                return a.getPostalCodeId().compareTo(b.getPostalCodeId());
+            }
+        });
+        //index the hubs that are already in the distributionHubs map (i.e., the hubs loaded from the database). Their impacts and the
+        //postal codes' repair estimates have already been calculated by the loader, so they are only indexed here
+        for(DamagedPostalCodes postal: postalCodes.values()){
+            indexPostal(postal);
+        }
+        for(HubImpact hub: distributionHubs.values()){
+            indexHub(hub);
+        }
+        for(DamagedPostalCodes postal: postalCodes.values()){
+            if(postal.getRepairEstimate()>0){
+                damagedPostals.add(postal);
+            }
+        }
+    }
+
+
+
+    //method used during addDistributionHub to add a new hub's relations to the index. Note that, like the PostalHubRelation table, the index
+    //also stores relations to postal codes that have not been added yet. Adding a hub changes the number of hubs servicing each of its
+    //postal codes, so the population effected and impact of the downed hubs that also service those postal codes are recalculated
+    void addHub(HubImpact hub){
+        indexHub(hub);
+        int hubId = hub.getSymbolId();
+        Set<HubImpact> coServicingHubs = new HashSet<>();
+        for(int i=store.getServicedStart(hubId); i<store.getServicedEnd(hubId); i++){
+            coServicingHubs.addAll(postalHubs.get(store.getServicedPostalId(i)));
+        }
+        refreshHubs(coServicingHubs);
+        if(!hub.getInService()){   //new hubs are added in service, so they normally do not change any repair estimates
+            for(int i=store.getServicedStart(hubId); i<store.getServicedEnd(hubId); i++){
+                refreshPostal(store.getServicedPostalId(i));
+            }
+        }
+    }
+
+
+
+    //method used during addPostalCode once the new postal code is in the postalCodes map. Until now, the postal code's population did not count
+    //towards the downed hubs that service it, so their population effected and impact are recalculated along with the postal's repair estimate
+    void addPostal(DamagedPostalCodes postal){
+        indexPostal(postal);
+        int postalId = postal.getSymbolId();
+        if(getNumberOfPostalHubs(postalId)>0){   //hubs servicing this postal code were added before it
+            servicedPopulation += postal.getPopulation();
+        }
+        refreshHubs(postalHubs.get(postalId));
+        refreshPostal(postalId);
+    }
+
+
+
+    //method used during hubDamage and hubRepair once the hub's repairTime and inService attributes have been changed. It updates the downed
+    //hub counts of the hub's serviced postal codes (only if the hub actually went down or came back online), then recalculates the hub's
+    //population effected and impact, and the repair estimates of its serviced postal codes
+    void updateHub(HubImpact hub, boolean wasInService){
+        int hubId = hub.getSymbolId();
+        if(hub.getInService()!=wasInService){
+            int change = hub.getInService() ? -1 : 1;   //hub came back online (-1) or went down (+1)
+            for(int i=store.getServicedStart(hubId); i<store.getServicedEnd(hubId); i++){
+                int postalId = store.getServicedPostalId(i);
+                store.setDownHubCount(postalId, store.getDownHubCount(postalId)+change);
+            }
+        }
+        refreshHub(hub);   //this also adds the hub to (or removes it from) the downHubs heap
+        for(int i=store.getServicedStart(hubId); i<store.getServicedEnd(hubId); i++){
+            refreshPostal(store.getServicedPostalId(i));
+        }
+    }
+
+
+
+    //returns the <limit> downed hubs with the highest impacts in descending order, along with any further hubs that tie in impact with the
+    //hub at the limit (i.e., the hubs fixOrder should return). The downHubs heap is always up to date, so this only visits the returned hubs
+    List<HubImpact> getFixOrder(int limit){
+        return downHubs.top(limit);
+    }
+
+
+
+    //returns the postal codes that are affected by at least one hub outage (i.e., repair estimate above 0), sorted by their repair estimates
+    //in descending order
+    SortedSet<DamagedPostalCodes> getDamagedPostals(){
+        return damagedPostals;
+    }
+
+
+
+    //method used during this class's constructor and addPostal to intern a postal code, copy its values into the store and turn it into a
+    //view over its row
+    private void indexPostal(DamagedPostalCodes postal){
+        int postalId = internPostal(postal.getPostalCodeId());
+        store.addPostal(postal, postalId);
+        postal.attach(store, postalId);
+        postals[postalId] = postal;
+    }
+
+
+
+    //method used during this class's constructor and addHub to intern a hub, copy its values and serviced postal code ids into the store
+    //(turning it into a view over its row), and add its relations to the postal->hubs lists and the hub counts. A postal code that gets its
+    //first hub becomes serviced, so its population is added to the serviced population.
+    //The hub's postal code ids are stored in the same order as its servicedAreas set, so sums over them add up in the same order as before
+    private void indexHub(HubImpact hub){
+        int[] servicedPostalIds = new int[hub.getServicedAreas().size()];
+        int i = 0;
+        for(String postalCode: hub.getServicedAreas()){
+            int postalId = internPostal(postalCode);
+            servicedPostalIds[i++] = postalId;
+            List<HubImpact> hubs = postalHubs.get(postalId);
+            hubs.add(hub);
+            store.setHubCount(postalId, hubs.size());
+            if(hubs.size()==1 && postals[postalId]!=null){
+                servicedPopulation += store.getPopulation(postalId);
+            }
+            if(!hub.getInService()){
+                store.setDownHubCount(postalId, store.getDownHubCount(postalId)+1);
+            }
+        }
+        int hubId = store.addHub(hub, servicedPostalIds);   //hubs are stored in the order they are indexed, so this is also the hub's id
+        hub.attach(store, hubId);
+        if(!hub.getInService()){
+            downHubs.update(hub);
+        }
+    }
+
+
+
+    //method to intern a postal code, making room for its id in the postal code arrays if it has not been seen before
+    private int internPostal(String postalCode){
+        int postalId = postalIds.intern(postalCode);
+        if(postalId==postalHubs.size()){   //new postal code
+            postalHubs.add(new ArrayList<>());
+            store.reservePostal(postalId);
+            if(postalId>=postals.length){
+                postals = Arrays.copyOf(postals, 2*postals.length);
+            }
+        }
+        return postalId;
+    }
+
+
+
+    //method to recalculate and set a hub's population effected and impact (population effected/repair time), and to move it to its new
+    //position in the downHubs heap. Hubs that are in service have neither, so both are set to 0 and the hub is taken out of the heap
+    private void refreshHub(HubImpact hub){
+        if(hub.getInService()){
+            hub.setPopulationEffected(0);
+            hub.setImpact(0);
+            downHubs.remove(hub);
+            return;
+        }
+        hub.setPopulationEffected(calculatePopulationEffected(hub));
+        hub.setImpact(hub.getPopulationEffected() / hub.getRepairTime());
+        downHubs.update(hub);
+    }
+
+
+
+    //method to refresh each downed hub in a collection of hubs (in service hubs are skipped since their values do not change)
+    private void refreshHubs(Collection<HubImpact> hubs){
+        for(HubImpact hub: hubs){
+            if(!hub.getInService()){
+                refreshHub(hub);
+            }
+        }
+    }
+
+
+
+    //method to recalculate and set a postal code's repair estimate, and to move it to its new position in the damagedPostals set.
+    //Postal codes that have not been added yet are skipped
+    private void refreshPostal(int postalId){
+        DamagedPostalCodes postal = postals[postalId];
+        if(postal==null){
+            return;
+        }
+        damagedPostals.remove(postal);   //it has to be removed before its repair estimate (sorting key) changes
+        postal.setRepairEstimate(calculatePostalRepairTime(postalId));
+        if(postal.getRepairEstimate()>0){
+            damagedPostals.add(postal);
+        }
+    }
+
+
+
+    //returns the hubs that service a postal code (an empty list if none do)
+    List<HubImpact> getPostalHubs(String postalCode){
+        int postalId = postalIds.getId(postalCode);
+        if(postalId==-1){
+            return Collections.emptyList();
+        }
+        return postalHubs.get(postalId);
+    }
+
+
+
+    //returns the total number of hubs that service a postal code, by its id (see DamagedPostalCodes' getSymbolId)
+    int getNumberOfPostalHubs(int postalId){
+        return store.getHubCount(postalId);
+    }
+
+
+
+    //method to calculate a postal code's total repair time (i.e., the sum of the repair estimates of its downed hubs)
+    float calculatePostalRepairTime(int postalId){
+        float postalRepairTime = 0;
+        if(store.getDownHubCount(postalId)==0){
+            return postalRepairTime;
+        }
+        for(HubImpact hub: postalHubs.get(postalId)){
+            if(!hub.getInService()){
+                postalRepairTime += hub.getRepairTime();
+            }
+        }
+        return postalRepairTime;
+    }
+
+
+
+    //method to calculate the total number of people affected by a hub's outage. Each serviced postal code contributes the share of its
+    //population that this hub is responsible for (i.e., its population divided by the number of hubs servicing it)
+    float calculatePopulationEffected(HubImpact hub){
+        float populationEffected = 0;
+        int hubId = hub.getSymbolId();
+        for(int i=store.getServicedStart(hubId); i<store.getServicedEnd(hubId); i++){
+            int postalId = store.getServicedPostalId(i);
+            if(!store.isPostalAdded(postalId)){   //postal code has not been added yet, so it has no population
+                continue;
+            }
+            float postalHubs = (float) store.getHubCount(postalId);
+            populationEffected += ((float) store.getPopulation(postalId)) * (1/postalHubs);
+        }
+        return populationEffected;
+    }
+
+
+
+    //returns the total population of the postal codes that are serviced by at least one hub (kept up to date by indexHub and addPostal)
+    int getServicedPopulation(){
+        return servicedPopulation;
+    }
+
+
+
+    //method to find the total population that is out of service due to hub outages (i.e., each postal code's population times the fraction
+    //of its hubs that are down). This is a single scan over the store's postal code columns
+    float hubOutagePopulationOutOfService(){
+        return store.hubOutagePopulationOutOfService();
+    }
+
+
+
+    //method to find the total population of the postal codes that are not serviced by any hubs (and are therefore out of service)
+    float postalPopulationWithoutHubOutOfService(){
+        return store.populationWithoutHubs();
+    }
+}
@@ -1,18 +1,106 @@
 import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.concurrent.*;
 
 public class PowerService{
 
     private Map<String, DamagedPostalCodes> postalCodes;   //map to store all postal codes as String-DamagedPostalCodes pairs where the String key is the postal code identifier
     private Map<String, HubImpact> distributionHubs;   //map to store all distribution hubs as String-HubImpact pairs where the string key is the hub's identifier
-    private Database db;   //a Database interface class object that is used to access the SQL database
+    private GridStorage db;   //the storage backend that the model is loaded from and every change is written to (the SQL database unless another backend is supplied)
+    private PostalHubIndex postalHubIndex;   //in-memory index of which hubs service which postal codes (used to answer reports without querying the database)
+    private HubSpatialIndex hubSpatialIndex;   //in-memory index of the hubs by their locations (used for the hub location check and repairPlan's range search)
+    private RepairPlanCache repairPlanCache;   //the results of recent repairPlan calls (entries are dropped when a hub in their search region changes)
+    private boolean parallelRepairPlans;   //whether repairPlan searches the path combinations of large repair plans on several threads (on by default)
+    private boolean pushdownQueries;   //whether peopleOutOfService and the underserved reports are calculated by a database query instead of the in-memory index (off by default)
+    private HubWriteBehind writeBehind;   //journals hubDamage and hubRepair's database writes and writes them in the background (null unless write-behind mode is on)
+    private RepairLogWriter repairLogWriter;   //group-commits hubRepair's RepairLog rows (null unless the repair log writer is on)
+
+    private static final int HUB_GRID_CELL_SIZE = 64;   //width and height of the cells that hubSpatialIndex buckets hub locations into
+    private static final int EXHAUSTIVE_PLAN_LIMIT = 12;   //repairPlan goes through every path combination up to this many intermediate hubs (beyond it, RepairPlanGrid's solver is used)
+    private static final int REPAIR_PLAN_CACHE_SIZE = 256;   //maximum number of repair plans kept in repairPlanCache
+    private static final int MAX_EMPLOYEE_ID_LENGTH = 100;   //longest employee id the RepairLog table can store (its emp_id column is a varchar(100))
+    private static final int PARALLEL_PLAN_THRESHOLD = 9;   //repairPlan searches the path combinations in parallel from this many intermediate hubs onwards (if parallelRepairPlans is on)
 
 
     //the PowerService constructor accesses the database and populates the postalCodes and distributionHubs map with the
     //existing postal codes and distribution hubs that are stored in the database
     PowerService() throws Exception{
         //first, check if we can access the SQL database
+        openDatabase();
+        postalCodes = new HashMap<>();
+        distributionHubs = new HashMap<>();
+        //load in the existing postal codes and distribution hubs stored in the database into the postalCodes and distributionHubs maps
+        //(the database is scanned once per table rather than queried once per postal code and hub)
+        try{
+            db.loadGridSnapshot(postalCodes, distributionHubs);
+        }
+        catch(SQLException e){
+            throw new SQLException("SQL query failed (selecting from PostalCodes, DistributionHubs, PostalHubRelation tables)!\nSource: PowerService constructor\nDetails: " + e.getMessage());
+        }
+        createIndexes();
+    }
+
+
+
+
+    //this constructor populates the postalCodes and distributionHubs maps from a snapshot file written by saveSnapshot instead of from the
+    //database (the snapshot also holds the calculated impacts and repair estimates, so nothing has to be recalculated). The database is still
+    //accessed, and every change made from then on is written to it as usual. A snapshot that is not up to date with the database (i.e., the
+    //database was changed after it was saved, see GridStorage's getGridGeneration) is refused
+    PowerService(String snapshotFile) throws Exception{
+        if(snapshotFile==null){
+            throw new IllegalArgumentException("SnapshotFile is null!\nSource: PowerService constructor");
+        }
+        openDatabase();
+        postalCodes = new HashMap<>();
+        distributionHubs = new HashMap<>();
+        long snapshotGeneration;
+        long databaseGeneration;
+        try{
+            snapshotGeneration = GridSnapshotFile.read(snapshotFile, postalCodes, distributionHubs);
+            databaseGeneration = db.getGridGeneration();
+        }
+        catch(IOException e){
+            db.close();
+            throw new IOException("Error reading snapshot file!\nSource: PowerService constructor\nDetails: " + e.getMessage());
+        }
+        catch(SQLException e){
+            db.close();
+            throw new SQLException("SQL query failed (selecting from GridGeneration table)!\nSource: PowerService constructor\nDetails: " + e.getMessage());
+        }
+        if(snapshotGeneration!=databaseGeneration){
+            db.close();
+            throw new IOException("Snapshot file is out of date!\nSource: PowerService constructor\nDetails: the snapshot was saved at generation " + snapshotGeneration + ", but the database is at generation " + databaseGeneration);
+        }
+        createIndexes();
+    }
+
+
+
+    //this constructor loads the model from (and writes every change to) the supplied storage backend instead of the SQL database, i.e., an
+    //EmbeddedStorage to run without a database server. The backend is closed by close
+    PowerService(GridStorage storage) throws Exception{
+        if(storage==null){
+            throw new IllegalArgumentException("Storage is null!\nSource: PowerService constructor");
+        }
+        db = storage;
+        postalCodes = new HashMap<>();
+        distributionHubs = new HashMap<>();
+        try{
+            db.loadGridSnapshot(postalCodes, distributionHubs);
+        }
+        catch(SQLException e){
+            throw new SQLException("Loading the grid model from storage failed!\nSource: PowerService constructor\nDetails: " + e.getMessage());
+        }
+        createIndexes();
+    }
+
+
+
+    //method used by the constructors to access the SQL database
+    private void openDatabase() throws Exception{
         try {
             db = new Database();
         }
@@ -22,33 +110,181 @@ public class PowerService{
         catch(SQLException e){
             throw new SQLException("Database connection failed!\nSource: PowerService constructor\nDetails: " + e.getMessage());
         }
-        postalCodes = new HashMap<>();
-        distributionHubs = new HashMap<>();
-        //load in the existing postal codes stored in the database into the postalCodes map
-        List<DamagedPostalCodes> existingPostalCodes = new ArrayList<>();
+    }
+
+
+
+    //method used by the constructors to build the in-memory indexes once the postalCodes and distributionHubs maps have been populated
+    private void createIndexes(){
+        postalHubIndex = new PostalHubIndex(postalCodes, distributionHubs);
+        hubSpatialIndex = new HubSpatialIndex(HUB_GRID_CELL_SIZE);
+        for(HubImpact hub: distributionHubs.values()){
+            hubSpatialIndex.add(hub);
+        }
+        repairPlanCache = new RepairPlanCache(REPAIR_PLAN_CACHE_SIZE);
+        parallelRepairPlans = true;
+        pushdownQueries = false;
+        writeBehind = null;
+        repairLogWriter = null;
+    }
+
+
+
+
+    //saves the whole in-memory model (postal codes, hubs, their relations, and the calculated impacts and repair estimates) to a snapshot
+    //file, which the PowerService(String snapshotFile) constructor can later load instead of the database
+    void saveSnapshot(String snapshotFile) throws Exception{
+        if(snapshotFile==null){
+            throw new IllegalArgumentException("SnapshotFile is null!\nSource: saveSnapshot");
+        }
+        flushPendingWrites("saveSnapshot");   //the snapshot must match the database
+        try{
+            GridSnapshotFile.write(snapshotFile, db.getGridGeneration(), postalCodes, distributionHubs);
+        }
+        catch(IOException e){
+            throw new IOException("Error writing snapshot file!\nSource: saveSnapshot\nDetails: " + e.getMessage());
+        }
+        catch(SQLException e){
+            throw new SQLException("SQL query failed (selecting from GridGeneration table)!\nSource: saveSnapshot\nDetails: " + e.getMessage());
+        }
+    }
+
+
+
+
+    //releases the database connections held by this PowerService (i.e., closes the connection pool). This should be called once the
+    //program is done using this object. Throws the backend's error if it could not be saved (see EmbeddedStorage's close)
+    void close() throws IOException{
+        try{
+            if(repairLogWriter!=null){
+                repairLogWriter.close();   //stores the repair log entries that are still buffered
+            }
+        }
+        finally{
+            if(writeBehind!=null){
+                writeBehind.close();
+            }
+            db.close();
+        }
+    }
+
+
+
+    //turns parallel repair plan searches on or off. Both modes return the same repair plans; the serial mode only uses the calling thread
+    void setParallelRepairPlans(boolean parallelRepairPlans){
+        this.parallelRepairPlans = parallelRepairPlans;
+    }
+
+
+
+    //turns pushdown queries on or off. When on, peopleOutOfService, underservedPostalByPopulation and underservedPostalByArea get every postal
+    //code's hub counts from a single database query (see Database's forEachPostalHubAggregate) instead of from the in-memory index.
+    //Both modes calculate the reports the same way (postal codes that tie may come out in a different order)
+    void setPushdownQueries(boolean pushdownQueries){
+        this.pushdownQueries = pushdownQueries;
+    }
+
+
+
+    //turns write-behind mode on. From then on, hubDamage and hubRepair apply their changes to the in-memory model right away and append their
+    //database writes to a journal file, which a background thread writes to the database in batches (see HubWriteBehind). Any writes left in
+    //the journal by an earlier run (i.e., the program stopped before they reached the database) are applied to the model and the database
+    //first. Reports that read the database (pushdown queries) and saveSnapshot wait for the pending writes. Needs the database backend, and
+    //can only be turned on once
+    void enableWriteBehind(String journalFile) throws Exception{
+        if(journalFile==null){
+            throw new IllegalArgumentException("JournalFile is null!\nSource: enableWriteBehind");
+        }
+        if(writeBehind!=null){
+            throw new IllegalStateException("Write-behind mode is already on!\nSource: enableWriteBehind");
+        }
+        if(db instanceof EmbeddedStorage){   //it only keeps the checkpoints in memory, so journaled writes could be applied twice after a restart
+            throw new IllegalStateException("Write-behind mode needs the database backend!\nSource: enableWriteBehind\nDetails: EmbeddedStorage does not save its write-behind checkpoints");
+        }
+        HubWriteBehind newWriteBehind;
         try{
-            existingPostalCodes = db.getPostalCodesFromDB();
+            newWriteBehind = new HubWriteBehind(db, journalFile);
+        }
+        catch(IOException e){
+            throw new IOException("Error reading write-behind journal!\nSource: enableWriteBehind\nDetails: " + e.getMessage());
         }
         catch(SQLException e){
-            throw new SQLException("SQL query failed (selecting from PostalCodes table)!\nSource: PowerService constructor\nDetails: " + e.getMessage());
+            throw new SQLException("SQL query failed (selecting from WriteBehindCheckpoint table)!\nSource: enableWriteBehind\nDetails: " + e.getMessage());
         }
-        if(existingPostalCodes!=null && !existingPostalCodes.isEmpty()){
-            for(int i=0; i<existingPostalCodes.size(); i++){
-                postalCodes.put(existingPostalCodes.get(i).getPostalCodeId(), existingPostalCodes.get(i));
+        for(HubWrite write: newWriteBehind.getRecoveredWrites()){   //bring the model up to date with the writes that are not in the database yet
+            HubImpact hub = distributionHubs.get(write.getHubId());
+            if(hub==null){
+                continue;
+            }
+            if(write.getType()==HubWrite.DAMAGE){
+                applyHubDamage(hub, write.getRepairTime());
             }
+            else if(write.getType()==HubWrite.REPAIR){
+                applyHubRepair(hub, write.getRepairTime(), write.getInService());
+            }
+        }
+        newWriteBehind.start();
+        writeBehind = newWriteBehind;
+    }
+
+
+
+    //turns the repair log writer on. From then on, hubRepair's RepairLog rows are buffered and group-committed in the background by a
+    //RepairLogWriter instead of being inserted one per call. If segmentDirectory is null, each group is inserted into the database as a
+    //multi-row insert. Otherwise, groups are stored in segment files in that directory and inserted into the database in the background
+    //(entries left there by an earlier run are inserted first), which needs the database backend. Reports that read the database (pushdown
+    //queries) and saveSnapshot wait for the buffered rows, and close stores them. Can only be turned on once
+    void enableRepairLogWriter(String segmentDirectory) throws Exception{
+        if(repairLogWriter!=null){
+            throw new IllegalStateException("The repair log writer is already on!\nSource: enableRepairLogWriter");
+        }
+        if(segmentDirectory!=null && db instanceof EmbeddedStorage){   //it only keeps the checkpoints in memory, so segment entries could be logged twice after a restart
+            throw new IllegalStateException("Repair log segment files need the database backend!\nSource: enableRepairLogWriter\nDetails: EmbeddedStorage does not save its write-behind checkpoints");
         }
-        //load in the existing distribution hubs stored in the database into the distributionHubs map
-        List<HubImpact> existingDistributionHubs = new ArrayList<>();
         try{
-            existingDistributionHubs = db.getDistributionHubsFromDB();
+            repairLogWriter = new RepairLogWriter(db, segmentDirectory);
+        }
+        catch(IOException e){
+            throw new IOException("Error opening repair log segment files!\nSource: enableRepairLogWriter\nDetails: " + e.getMessage());
         }
         catch(SQLException e){
-            throw new SQLException("SQL query failed (selecting from DistributionHubs table)!\nSource: PowerService constructor\nDetails: " + e.getMessage());
+            throw new SQLException("SQL query failed (selecting from WriteBehindCheckpoint table)!\nSource: enableRepairLogWriter\nDetails: " + e.getMessage());
         }
-        if(existingDistributionHubs!=null && !existingDistributionHubs.isEmpty()){
-            for(int i=0; i<existingDistributionHubs.size(); i++){
-                distributionHubs.put(existingDistributionHubs.get(i).getHubId(), existingDistributionHubs.get(i));
+    }
+
+
+
+    //method to wait until the writes journaled in write-behind mode and the RepairLog rows buffered by the repair log writer are in the
+    //database (does nothing if neither is on)
+    private void flushPendingWrites(String source) throws SQLException{
+        if(writeBehind!=null){
+            try{
+                writeBehind.flush();
             }
+            catch(SQLException e){
+                throw new SQLException("Write-behind writes to the database failed!\nSource: " + source + "\nDetails: " + e.getMessage());
+            }
+        }
+        if(repairLogWriter!=null){
+            try{
+                repairLogWriter.flush();
+            }
+            catch(IOException | SQLException e){
+                throw new SQLException("Repair log writes to the database failed!\nSource: " + source + "\nDetails: " + e.getMessage());
+            }
+        }
+    }
+
+
+
+    //method used by hubDamage and hubRepair in write-behind mode to append their database writes to the journal (together, with a single
+    //force to disk)
+    private void journalHubWrites(List<HubWrite> writes, String source) throws IOException{
+        try{
+            writeBehind.append(writes);
+        }
+        catch(IOException e){
+            throw new IOException("Write-behind journal append failed!\nSource: " + source + "\nDetails: " + e.getMessage());
         }
     }
 
@@ -89,12 +325,15 @@ public class PowerService{
         }
         try{
             updatePostalHubRelation(postalCode);    //update the PostalHubRelation bridge table to reflect any hubs that service this postal code (a hub that serviced this postal may have been added before this postal, so we need to check and update any relations in the PostalHubRelation table accordingly)
-            newPostalCode.setRepairEstimate(db.calculatePostalRepairTime(postalCode));    //calculate the total repair time needed (if any) to restore power to all this postal's population, and set the DamagedPostalCodes object's repairTime attribute to that calculated value
         }
         catch(SQLException e){
             return false;
         }
         postalCodes.put(newPostalCode.getPostalCodeId(), newPostalCode);   //add this new postal code to the postalCodes map
+        //calculate the total repair time needed (if any) to restore power to all this postal's population, and update the impacts
+        //of the downed hubs that service this postal code (its population now counts towards their population effected)
+        postalHubIndex.addPostal(newPostalCode);
+        repairPlanCache.invalidate(postalHubIndex.getPostalHubs(newPostalCode.getPostalCodeId()));   //the impacts of the hubs servicing it have changed
         return true;
     }
 
@@ -128,14 +367,12 @@ public class PowerService{
     //method used during addPostalCode and addDistributionHub to update the PostalHubRelation bridge table
     //to connect postal codes to the hubs that service them (many-to-many relationship)
     private void updatePostalHubRelation(String postalCode) throws SQLException{
-        for(Map.Entry<String, HubImpact> entry: distributionHubs.entrySet()){    //iterate through each hub stored in the distributionHubs map
-            if(entry.getValue().getServicedAreas().contains(postalCode)){    //iterate through each postal code in that hub's servicedArea set
-                try{
-                    db.updatePostalHubRelation(postalCode, entry.getKey());   //connect this hub to this postal code (if it is not already connected) by inserting the corresponding row into the PostalHubRelation table
-                }
-                catch(SQLException e){
-                    throw e;
-                }
+        for(HubImpact hub: postalHubIndex.getPostalHubs(postalCode)){    //iterate through each hub that has this postal code in its servicedArea set
+            try{
+                db.updatePostalHubRelation(postalCode, hub.getHubId());   //connect this hub to this postal code (if it is not already connected) by inserting the corresponding row into the PostalHubRelation table
+            }
+            catch(SQLException e){
+                throw e;
             }
         }
     }
@@ -184,7 +421,9 @@ public class PowerService{
             }
             servicedPostalCodes.add(area);
         }
-        //create a HubImpact object to store this hub's information, and pass it to the database interface object to insert the hub's data into the DistributionHubs table
+        //create a HubImpact object to store this hub's information, and pass it to the database interface object to insert the hub's data into the DistributionHubs table.
+        //For each of the postal codes this hub services, a row is also added to reflect that relationship in the PostalHubRelation table (in the same transaction)
+        //note that the relation is stored even if the postal code does not exist yet (it takes effect if/when that postal code is added later on)
         HubImpact newHub = new HubImpact(hubIdentifier, location, servicedPostalCodes, 0, true, 0, 0);
         try{
             db.addDistributionHubToDB(newHub);
@@ -192,33 +431,24 @@ public class PowerService{
         catch(SQLException e){
             return false;
         }
-        //for each of the postal codes this hub services, add a row to reflect that relationship in the PostalHubRelation table
-        //note that a row is not added if the postal code does not exist, but will be added if/when that postal code is added later on
-        try{
-            Iterator itr2 = servicedPostalCodes.iterator();
-            while(itr2.hasNext()){
-                String postalCode = (String) itr2.next();
-                db.updatePostalHubRelation(postalCode, hubIdentifier);
-            }
-        }
-        catch(SQLException e){
-            return false;
-        }
         distributionHubs.put(hubIdentifier, newHub);   //add the new hub to the distributionHubs map
+        postalHubIndex.addHub(newHub);   //and add its relations to the in-memory postal-hub index (this also updates the impacts of downed hubs servicing the same postal codes)
+        hubSpatialIndex.add(newHub);   //and add its location to the spatial index
+        //drop the cached repair plans around the new hub and around the hubs whose impacts it changed (the hubs servicing the same postal codes)
+        Set<HubImpact> affectedHubs = new HashSet<>();
+        for(String postalCode: servicedPostalCodes){
+            affectedHubs.addAll(postalHubIndex.getPostalHubs(postalCode));
+        }
+        repairPlanCache.invalidate(affectedHubs);
         return true;
     }
 
 
 
     //this method is used during addDistributionHub. It checks whether a hub already exists in the location
-    //of the new hub that trying to be added.
+    //of the new hub that trying to be added (looked up by coordinates in the spatial index rather than by going through every hub)
     private boolean hubExistsInLocation(Point location){   //The location parameter is the location of the new hub
-        for(Map.Entry<String, HubImpact> entry: distributionHubs.entrySet()){   //iterate through the existing hubs
-            if(entry.getValue().getLocation().compare(location)){      //check if the new hub's location has the same coordinates as this existing hub's location
-                return true;
-            }
-        }
-        return false;
+        return hubSpatialIndex.getHubAt(location)!=null;
     }
 
 
@@ -242,29 +472,32 @@ public class PowerService{
         if(repairEstimate<=0){
             throw new IllegalArgumentException("RepairEstimate is zero or negative (invalid)! \nSource: hubDamage");
         }
-        HubImpact hub = distributionHubs.get(hubIdentifier);
-        hub.setRepairTime(hub.getRepairTime() + repairEstimate);   //increment the hub's repairTime attribute according to the repairTime being reported
-        hub.setInService(false);   //set its inService to false to indicate it is offline.
-        try{
-            db.updateHubDamage(hubIdentifier, repairEstimate);   //update the DistributionHubs table to reflect this hub's damage
+        if(writeBehind!=null){   //the update to the DistributionHubs table is journaled and written in the background
+            journalHubWrites(Collections.singletonList(new HubWrite(HubWrite.DAMAGE, hubIdentifier, null, repairEstimate, false)), "hubDamage");
         }
-        catch(SQLException e){
-            throw new SQLException("SQL update to DistributionHubs table failed!\nSource: hubDamage\nDetails: " + e.getMessage());
-        }
-        try{
-            hub.setPopulationEffected(db.calculatePopulationEffected(hub.getHubId(), hub.getServicedAreas()));   //calculate and set the total population that are effected by this hub's outage
-            hub.setImpact(((float) hub.getPopulationEffected()) / hub.getRepairTime());   //calculate and set the hub's impact (significance) as the total amount of people affected by the hub's outage divided by its estimated repair time
-            //now, we need to update each of this hub's serviced areas to reflect the new repairTime needed for all a postal
-            //code's population to regain power
-            Iterator itr = hub.getServicedAreas().iterator();
-            while(itr.hasNext()){
-                String postalCode = (String) itr.next();
-                postalCodes.get(postalCode).setRepairEstimate(db.calculatePostalRepairTime(postalCode));   //recalculate and set postal code's total repair time (i.e., based on this hub and other hubs servicing it)
+        else{
+            try{
+                db.updateHubDamage(hubIdentifier, repairEstimate);   //update the DistributionHubs table to reflect this hub's damage
+            }
+            catch(SQLException e){
+                throw new SQLException("SQL update to DistributionHubs table failed!\nSource: hubDamage\nDetails: " + e.getMessage());
             }
         }
-        catch(SQLException e){
-            throw new SQLException("SQL select from DistributionHubs, PostalCodes, PostalHubRelation tables failed!\nSource: hubRepair\nDetails: " + e.getMessage());
-        }
+        applyHubDamage(distributionHubs.get(hubIdentifier), repairEstimate);
+    }
+
+
+
+    //method used by hubDamage (and enableWriteBehind for journaled writes) to apply a hub's damage to the in-memory model
+    private void applyHubDamage(HubImpact hub, float repairEstimate){
+        boolean wasInService = hub.getInService();
+        hub.setRepairTime(hub.getRepairTime() + repairEstimate);   //increment the hub's repairTime attribute according to the repairTime being reported
+        hub.setInService(false);   //set its inService to false to indicate it is offline.
+        repairPlanCache.invalidate(Collections.singletonList(hub));   //drop the cached repair plans whose search region contains this hub
+        //calculate and set the total population that are effected by this hub's outage and the hub's impact (significance) as the total amount of
+        //people affected by the hub's outage divided by its estimated repair time. Then, update each of this hub's serviced areas to reflect the
+        //new repairTime needed for all a postal code's population to regain power
+        postalHubIndex.updateHub(hub, wasInService);
     }
 
 
@@ -295,101 +528,123 @@ public class PowerService{
         if(employeeId.equals("")){
             throw new IllegalArgumentException("EmployeeId is empty! \nSource: hubRepair");
         }
+        if(employeeId.length()>MAX_EMPLOYEE_ID_LENGTH){   //checked here, since a journaled or group-committed row that is too long would only fail later
+            throw new IllegalArgumentException("EmployeeId is too long (over " + MAX_EMPLOYEE_ID_LENGTH + " characters)! \nSource: hubRepair");
+        }
         if(repairTime<0){
             throw new IllegalArgumentException("RepairTime is negative! \nSource: hubRepair");
         }
-        try{
-            //insert row into RepairLog table to store this repair being performed
-            db.updateRepairLog(employeeId, hubIdentifier, repairTime, inService);
+        HubImpact hub = distributionHubs.get(hubIdentifier);
+        float newRepairTime;   //the hub's repair estimate after this repair
+        if(inService){   //the repair results in the hub being online, so its estimated repair time is set to 0 (regardless of repair time done)
+            newRepairTime = 0;
         }
-        catch(SQLException e){
-            throw new SQLException("SQL insert on RepairLog table failed!\nSource: hubRepair \nDetails: " + e.getMessage());
-        }
-        if(inService){   //the repair results in the hub being online
-            //set the hub estimated repair time, impact, population effected, and in service values to reflect that it is now online (regardless of repair time done)
-            HubImpact hub = distributionHubs.get(hubIdentifier);
-            hub.setRepairTime(0);
-            hub.setInService(true);
-            hub.setImpact(0);
-            hub.setPopulationEffected(0);
+        else if(repairTime<hub.getRepairTime()){   //the repair does not result in hub being online (still offline)
+            //the hub's repair estimate is only changed if this repair's time is less than the original estimate.
+            //In the case that the repair time is greater than or equal to the original estimate, then the hub's estimate is not changed
+            //(see design decision in external documentation for more details)
+            newRepairTime = hub.getRepairTime() - repairTime;
+        }
+        else{
+            newRepairTime = hub.getRepairTime();
+        }
+        if(repairLogWriter!=null){   //the RepairLog row is buffered and group-committed with the rows of other repairs in the background
             try{
-                //update DistributionHubs table to reflect that this hub is now back online
-                db.applyHubRepairToDB(hubIdentifier, 0, true);
+                repairLogWriter.append(employeeId, hubIdentifier, repairTime, inService);
             }
-            catch(SQLException e){
-                throw new SQLException("SQL Update on DistributionHubs table failed!\nSource: hubRepair \nDetails: " + e.getMessage());
+            catch(IOException e){
+                throw new IOException("Repair log append failed!\nSource: hubRepair \nDetails: " + e.getMessage());
             }
+        }
+        else if(writeBehind==null){
             try{
-                //update each of the postal codes serviced by the hub that was repaired to reflect the change in the total
-                //repair time each postal code needs to restore power to all its population
-                Iterator itr = hub.getServicedAreas().iterator();
-                while(itr.hasNext()){
-                    String postalCode = (String) itr.next();
-                    postalCodes.get(postalCode).setRepairEstimate(db.calculatePostalRepairTime(postalCode));
-                }
+                //insert row into RepairLog table to store this repair being performed
+                db.updateRepairLog(employeeId, hubIdentifier, repairTime, inService);
             }
             catch(SQLException e){
-                throw new SQLException("SQL select from DistributionHubs, PostalCodes, PostalHubRelation tables failed!\nSource: hubRepair\nDetails: " + e.getMessage());
+                throw new SQLException("SQL insert on RepairLog table failed!\nSource: hubRepair \nDetails: " + e.getMessage());
             }
         }
-        else{   //the repair does not result in hub being online (still offline)
-            HubImpact hub = distributionHubs.get(hubIdentifier);
-            //the hub's repair estimate is only changed if this repair's time is less than the original estimate.
-            //In the case that the repair time is greater than or equal to the original estimate, then the hub's estimate is not changed
-            //(see design decision in external documentation for more details)
-            if(repairTime<hub.getRepairTime()){
-                hub.setRepairTime(hub.getRepairTime() - repairTime);
+        if(writeBehind!=null){   //the DistributionHubs update (and the RepairLog insert, unless the repair log writer has it) are journaled together and written in the background
+            List<HubWrite> writes = new ArrayList<>(2);
+            if(repairLogWriter==null){
+                writes.add(new HubWrite(HubWrite.REPAIR_LOG, hubIdentifier, employeeId, repairTime, inService));
             }
+            writes.add(new HubWrite(HubWrite.REPAIR, hubIdentifier, null, newRepairTime, inService));
+            journalHubWrites(writes, "hubRepair");
+        }
+        else{
             try{
-                //update the DistributionHubs table to reflect this repair
-                db.applyHubRepairToDB(hubIdentifier, hub.getRepairTime(), false);
+                //update the DistributionHubs table to reflect this repair (and whether this hub is now back online)
+                db.applyHubRepairToDB(hubIdentifier, newRepairTime, inService);
             }
             catch(SQLException e){
                 throw new SQLException("SQL Update on DistributionHubs table failed!\nSource: hubRepair \nDetails: " + e.getMessage());
             }
-            try{
-                //recalculate and set this hub's impact (population effected by its outage and [that population/new repair time estimate]}
-                hub.setPopulationEffected(db.calculatePopulationEffected(hub.getHubId(), hub.getServicedAreas()));
-                hub.setImpact(((float) hub.getPopulationEffected()) / hub.getRepairTime());
-                //update each of the postal codes serviced by the hub that was repaired to reflect the change in the total
-                //repair time each postal code needs to restore power to all its population
-                Iterator itr = hub.getServicedAreas().iterator();
-                while(itr.hasNext()){
-                    String postalCode = (String) itr.next();
-                    postalCodes.get(postalCode).setRepairEstimate(db.calculatePostalRepairTime(postalCode));
-                }
-            }
-            catch(SQLException e){
-                throw new SQLException("SQL select from DistributionHubs, PostalCodes, PostalHubRelation tables failed!\nSource: hubRepair\nDetails: " + e.getMessage());
-            }
         }
+        applyHubRepair(hub, newRepairTime, inService);
+    }
+
+
+
+    //method used by hubRepair (and enableWriteBehind for journaled writes) to apply a hub's repair to the in-memory model
+    private void applyHubRepair(HubImpact hub, float repairTime, boolean inService){
+        boolean wasInService = hub.getInService();
+        if(hub.getRepairTime()!=repairTime || wasInService!=inService){
+            hub.setRepairTime(repairTime);
+            hub.setInService(inService);
+            repairPlanCache.invalidate(Collections.singletonList(hub));   //drop the cached repair plans whose search region contains this hub
+        }
+        //recalculate and set this hub's impact (population effected by its outage and [that population/new repair time estimate]) [0 if the
+        //hub is back online], and update each of the postal codes serviced by the hub that was repaired to reflect the change in the total
+        //repair time each postal code needs to restore power to all its population
+        postalHubIndex.updateHub(hub, wasInService);
     }
 
 
 
 
     int peopleOutOfService() throws SQLException{
-        float totalPeopleOutOfService = 0;   //tally variable
-        try{
-            for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){   //iterate through the postalCodes map
-                float postalCodePopOutOfService = db.percentageOfPostalDamagedHubs(entry.getKey());  //calculate this postal code's population without service
-                totalPeopleOutOfService += entry.getValue().getPopulation() * postalCodePopOutOfService;    //increment the tally by that population
+        if(pushdownQueries){
+            return peopleOutOfServiceFromAggregates();
+        }
+        //tally each postal code's population without service (its population times the fraction of its hubs that are down)
+        float totalPeopleOutOfService = postalHubIndex.hubOutagePopulationOutOfService();
+        //note that these calculations only take into account those postal codes that are serviced by at least one hub.
+        //So, calculate the total population of postal codes that are not serviced by any hubs
+        //(i.e., out of service since they have no hubs) and add that to the tally
+        totalPeopleOutOfService += postalHubIndex.postalPopulationWithoutHubOutOfService();
+        int peopleOutOfService = (int) Math.ceil(totalPeopleOutOfService);   //round up the tally (i.e., 10.5 becomes 11)
+        return peopleOutOfService;
+    }
+
+
+
+    //the pushdown version of peopleOutOfService (see setPushdownQueries)
+    private int peopleOutOfServiceFromAggregates() throws SQLException{
+        float[] totalPeopleOutOfService = {0};   //tally variable (an array, so the row consumer below can add to it)
+        forEachPostalHubAggregate("peopleOutOfService", postal -> {
+            if(postal.getHubCount()==0){   //postal code is not serviced by any hubs, so its whole population is out of service
+                totalPeopleOutOfService[0] += postal.getPopulation();
+                return;
             }
-            //note that these calculations only take into account those postal codes that are serviced by at least one hub
-        }
-        catch(SQLException e){
-            throw new SQLException("SQL join/select from PostalHubRelations and DistributionHubs failed!\nSource: peopleOutOfService\nDetails: " + e.getMessage());
-        }
+            float postalCodePopOutOfService = ((float) postal.getDownHubCount())/((float) postal.getHubCount());   //fraction of its hubs that are down
+            totalPeopleOutOfService[0] += postal.getPopulation() * postalCodePopOutOfService;
+        });
+        return (int) Math.ceil(totalPeopleOutOfService[0]);   //round up the tally (i.e., 10.5 becomes 11)
+    }
+
+
+
+    //method used by the pushdown versions of the reports to run the storage's postal-hub aggregate query, passing each row to a consumer
+    private void forEachPostalHubAggregate(String source, Consumer<PostalHubAggregate> consumer) throws SQLException{
+        flushPendingWrites(source);   //the query must see the hub writes that are still journaled
         try{
-            //calculate the total population of postal codes that are not serviced by any hubs
-            //(i.e., out of service since they have no hubs) and add that to the tally
-            totalPeopleOutOfService += db.postalPopulationWithoutHubOutOfService();
+            db.forEachPostalHubAggregate(consumer);
         }
         catch(SQLException e){
-            throw new SQLException("SQL join/select from PostalCodes and PostalHubRelation failed!\nSource: peopleOutOfService\nDetails: " + e.getMessage());
+            throw new SQLException("SQL query failed (selecting from PostalCodes, DistributionHubs, PostalHubRelation tables)!\nSource: " + source + "\nDetails: " + e.getMessage());
         }
-        int peopleOutOfService = (int) Math.ceil(totalPeopleOutOfService);   //round up the tally (i.e., 10.5 becomes 11)
-        return peopleOutOfService;
     }
 
 
@@ -398,42 +653,30 @@ public class PowerService{
         if(limit<1){
             throw new IllegalArgumentException("Limit is less than 1 (invalid)! \nSource: mostDamagedPostalCodes");
         }
-        Map<String, Float> postalRepairTimes = new HashMap<>();     //map to store each postal code and its corresponding total amount of repair time to regain full power
-        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){   //iterate through the postalCodes map
-            float repairEstimate = entry.getValue().getRepairEstimate();
-            try{
-                repairEstimate = db.calculatePostalRepairTime(entry.getKey());  //calculate this postal code's total repair time needed to regain full power
-                entry.getValue().setRepairEstimate(repairEstimate);
-            }
-            catch(SQLException e){
-                throw new SQLException("SQL join/select from PostalHubRelations and DistributionHubs failed!\nSource: mostDamagedPostalCodes\nDetails: " + e.getMessage());
-            }
-            //add only the postal codes that are affected by at least one hub outage to the postalRepairTImes map
-            //(this also means that postal codes that are not serviced by any hubs are excluded [see design decisions in external documentation for more details])
-            if(repairEstimate>0){
-                postalRepairTimes.put(entry.getKey(), repairEstimate);
-            }
-        }
-        if(postalRepairTimes.isEmpty()){    //there are no postal codes that are effected by hub outages, so just return an empty list
+        //the index keeps every postal code's repair estimate up to date and the postal codes that are affected by at least one hub outage sorted
+        //by their repair estimates in descending order, so there is nothing to calculate or sort here.
+        //Note that only postal codes affected by at least one hub outage are in this set
+        //(this also means that postal codes that are not serviced by any hubs are excluded [see design decisions in external documentation for more details])
+        SortedSet<DamagedPostalCodes> sortedPostalRepairTimes = postalHubIndex.getDamagedPostals();
+        if(sortedPostalRepairTimes.isEmpty()){    //there are no postal codes that are effected by hub outages, so just return an empty list
             return new ArrayList<>();
         }
-        Map<String, Float> sortedPostalRepairTimes = sortMapByValue(postalRepairTimes);   //sort the postalRepairTimes map by its values in descending order
         List<DamagedPostalCodes> mostDamagedPostalCodes = new ArrayList<>();
         int counter = 0;
         float valueAtLimit = -1;
-        for(Map.Entry<String, Float> entry: sortedPostalRepairTimes.entrySet()){    //iterate through this sorted list and add postal codes the list of most DamagedPostalCodes
+        for(DamagedPostalCodes postal: sortedPostalRepairTimes){    //iterate through this sorted set and add postal codes the list of most DamagedPostalCodes
             if(counter<limit-1){    //this postal code is before the limit so just add it
-                mostDamagedPostalCodes.add(postalCodes.get(entry.getKey()));
+                mostDamagedPostalCodes.add(postal);
                 counter++;
             }
             else if(counter==limit-1){    //this postal code is at the limit, so we add it to the list and same its value (its repairTime)
-                mostDamagedPostalCodes.add(postalCodes.get(entry.getKey()));
+                mostDamagedPostalCodes.add(postal);
                 counter++;
-                valueAtLimit = entry.getValue();
+                valueAtLimit = postal.getRepairEstimate();
             }
-            else{   //postal codes in sorted map are passed the limit
-                if(entry.getValue()==valueAtLimit){     //keep adding postal codes beyond the limit that tie with the postal code at the limit
-                    mostDamagedPostalCodes.add(postalCodes.get(entry.getKey()));
+            else{   //postal codes in sorted set are passed the limit
+                if(postal.getRepairEstimate()==valueAtLimit){     //keep adding postal codes beyond the limit that tie with the postal code at the limit
+                    mostDamagedPostalCodes.add(postal);
                 }
                 else{
                     break;
@@ -445,76 +688,15 @@ public class PowerService{
 
 
 
-    //this sorts a map by its values in descending order and is used during
-    //mostDamagedPostalCodes, fixOrder, underservedPostalByPopulation, and underservedPostalByArea
-    private Map<String, Float> sortMapByValue(Map<String, Float> unsortedMap){
-        Map<String, Float> sortedMap = new LinkedHashMap<>();   //map to store entries that are sorted by their values (linkedHashMap to retain insertion order)
-        //add all the unsorted map's values to a list and then sort that list in descending order
-        List<Float> sortedValues = new ArrayList<>();
-        sortedValues.addAll(unsortedMap.values());
-        Collections.sort(sortedValues);
-        Collections.reverse(sortedValues);
-        //match entries of the unsorted map with the sorted list's values, and those pairings to the sorted map
-        for(int i=0; i<sortedValues.size(); i++){
-            for(Map.Entry<String, Float> entry: unsortedMap.entrySet()){
-                if(entry.getValue() == sortedValues.get(i) && !sortedMap.containsKey(entry.getKey())){
-                    sortedMap.put(entry.getKey(), entry.getValue());
-                }
-            }
-        }
-        return sortedMap;
-    }
-
-
-
-
     List<HubImpact> fixOrder(int limit) throws Exception{
         if(limit<1){
             throw new IllegalArgumentException("Limit is less than 1 (invalid)! \nSource: fixOrder");
         }
-        Map<String, Float> hubImpacts = new HashMap<>();    //map to store each hub and its impact (population effected/repair time)
-        for(Map.Entry<String, HubImpact> entry: distributionHubs.entrySet()){   //iterate through the distributionHubs map
-            if(!entry.getValue().getInService()){    //take into account only the hubs that are experiencing an outage (not in service)
-                try{
-                    //calculate that hub's impact, then add the hub's identifier and impact to the hubImpact map
-                    float populationEffected = db.calculatePopulationEffected(entry.getKey(), entry.getValue().getServicedAreas());
-                    float impact = populationEffected / entry.getValue().getRepairTime();
-                    entry.getValue().setImpact(impact);
-                    entry.getValue().setPopulationEffected(populationEffected);
-                    hubImpacts.put(entry.getKey(), impact);
-                }
-                catch(SQLException e){
-                    throw new SQLException("SQL join/select from PostalHubRelations and DistributionHubs failed!\nSource: fixOrder\nDetails: " + e.getMessage());
-                }
-            }
-        }
-        if(hubImpacts.isEmpty()){   //no hubs are downed, so just return an empty list
-            return new ArrayList<>();
-        }
-        List<HubImpact> fixOrder = new ArrayList<>();
-        Map<String, Float> sortedHubImpacts = sortMapByValue(hubImpacts);  //sort the hubImpacts map by its values (impacts) in descending order
-        int counter = 0;
-        float valueAtLimit = -1;  //variable to store impact of hub at limit
-        //iterate through the sorted map and add entries to the fixOrder list
-        for(Map.Entry<String, Float> entry: sortedHubImpacts.entrySet()){
-            if(counter<limit-1){   //hub is before list limit so just add it
-                fixOrder.add(distributionHubs.get(entry.getKey()));
-                counter++;
-            }
-            else if(counter==limit-1){   //hub is at the list limit so add it and store its impact value
-                fixOrder.add(distributionHubs.get(entry.getKey()));
-                counter++;
-                valueAtLimit = entry.getValue();
-            }
-            else{   //hub is passed the list limit
-                if(entry.getValue()==valueAtLimit){   //add hubs passed the limit that tie in impact with the hub at the limit to the list
-                    fixOrder.add(distributionHubs.get(entry.getKey()));
-                }
-                else{
-                    break;
-                }
-            }
-        }
+        //the index keeps the hubs that are experiencing an outage (not in service) in a heap ordered by their impacts, and moves a hub within
+        //that heap whenever its impact changes (i.e., a hub is damaged, repaired, or added, or a postal code is added). So, the fix order
+        //(the top <limit> hubs and the hubs that tie in impact with the hub at the limit) can be read straight off the heap.
+        //If no hubs are downed, then this is just an empty list
+        List<HubImpact> fixOrder = postalHubIndex.getFixOrder(limit);
         return fixOrder;
     }
 
@@ -525,57 +707,35 @@ public class PowerService{
         if(limit<1){
             throw new IllegalArgumentException("Limit is less than 1 (invalid)! \nSource: underservedPostalByPopulation");
         }
-        List<String> underservedPostals = new ArrayList<>();
-        Map<String, Float> postalPopHubs = new HashMap<>();    //map to store each postal code and its population per hub (population/number of servicing hubs)
-        List<String> noServicePostals = new ArrayList<>();    //list to store postal codes that are not serviced by any hubs
-        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){    //iterate through the postalCodes map
-            float population = (float) entry.getValue().getPopulation();
-            try{
-                float postalHubs = db.getNumberOfPostalHubs(entry.getKey());    //get the total number of hubs that service this postal code
-                if(postalHubs==0){   //postal code is not serviced by any hubs, so add it to the dedicated list and move on to the next postal code
-                    noServicePostals.add(entry.getKey());
-                    continue;
-                }
-                //calculate this postal code's capitaPerHub and add its identifier and that calculated value to the postalPopHubs map
-                float capitaPerHub = population / postalHubs;
-                postalPopHubs.put(entry.getKey(), capitaPerHub);
-            }
-            catch(SQLException e){
-                throw new SQLException("SQL select from PostalHubRelations failed! \nSource: underservedPostalByPopulation\nDetails: " + e.getMessage());
-            }
-        }
-        if(postalPopHubs.isEmpty() && noServicePostals.isEmpty()){    //no postal codes exists, so just return an empty list
-            return underservedPostals;
+        if(pushdownQueries){
+            return underservedPostalsFromAggregates(limit, false, "underservedPostalByPopulation");
         }
-        postalPopHubs = sortMapByValue(postalPopHubs);  //sort the postalPopHubs map by its values in descending order
-        float valueAtLimit = -1;  //variable to store capitaPerHub of postal code at limit
-        int counter = 0;
+        List<String> underservedPostals = new ArrayList<>();
         //add all the postal codes that are not serviced by any hubs to the beginning of underservedPostals list
         //(this is because these postal codes are the most underserved by default regardless of their populations
         //and are all tied with a capitaPerHub of 0 meaning they will all be added to the list regardless of the limit argument)
-        for(int i=0; i<noServicePostals.size(); i++){
-            underservedPostals.add(noServicePostals.get(i));
-            counter++;
-        }
-        for(Map.Entry<String, Float> entry: postalPopHubs.entrySet()){   //iterate through the sorted postalPopHubs map
-            if(counter<limit-1){   //postal code is before list limit, so just add it
-                underservedPostals.add(entry.getKey());
-                counter++;
-            }
-            else if(counter==limit-1){   //postal code is at list limit, so add it and store its capitaPerHub value
+        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){    //iterate through the postalCodes map
+            if(postalHubIndex.getNumberOfPostalHubs(entry.getValue().getSymbolId())==0){
                 underservedPostals.add(entry.getKey());
-                counter++;
-                valueAtLimit = entry.getValue();
             }
-            else{   //postal code is passed list limit
-                if(entry.getValue()==valueAtLimit){   //add postal codes that tie in capitaPerHub with the postal code at the limit
-                    underservedPostals.add(entry.getKey());
-                }
-                else{
-                    break;
-                }
+        }
+        int remainingLimit = limit - underservedPostals.size();   //number of spots left in the list for postal codes that are serviced by hubs
+        if(remainingLimit<1){   //the unserviced postal codes already fill the list
+            return underservedPostals;
+        }
+        //rank the remaining postal codes by their capitaPerHub (population/number of servicing hubs) in descending order, keeping only the top
+        //<remainingLimit> postal codes and the postal codes that tie in capitaPerHub with the postal code at the limit
+        TopKRanking<String> postalPopHubs = new TopKRanking<>(remainingLimit);    //ranking of each postal code by its population per hub (population/number of servicing hubs)
+        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){
+            float postalHubs = (float) postalHubIndex.getNumberOfPostalHubs(entry.getValue().getSymbolId());    //get the total number of hubs that service this postal code
+            if(postalHubs==0){   //postal code is not serviced by any hubs (already added above)
+                continue;
             }
+            //calculate this postal code's capitaPerHub and add its identifier and that calculated value to the ranking
+            float capitaPerHub = ((float) entry.getValue().getPopulation()) / postalHubs;
+            postalPopHubs.add(entry.getKey(), capitaPerHub);
         }
+        underservedPostals.addAll(postalPopHubs.getRanking());
         return underservedPostals;
     }
 
@@ -585,57 +745,61 @@ public class PowerService{
         if(limit<1){
             throw new IllegalArgumentException("Limit is less than 1 (invalid)! \nSource: underservedPostalByArea");
         }
-        List<String> underservedPostals = new ArrayList<>();
-        Map<String, Float> postalAreaHubs = new HashMap<>();   //map to store each postal code and its area per hub (area/number of servicing hubs)
-        List<String> noServicePostals = new ArrayList<>();   //list to store postal codes that are not serviced by any hubs
-        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){   //iterate through the postalCodes map
-            float area = (float) entry.getValue().getArea();
-            try{
-                float postalHubs = db.getNumberOfPostalHubs(entry.getKey());   //get the total number of hubs that service this postal code
-                if(postalHubs==0){   //postal code is not serviced by any hubs, so add it to the dedicated list and move on to the next postal code
-                    noServicePostals.add(entry.getKey());
-                    continue;
-                }
-                //calculate this postal code's areaPerHub and add its identifier and that calculated value to the postalAreaHubs map
-                float areaPerHub = area / postalHubs;
-                postalAreaHubs.put(entry.getKey(), areaPerHub);
-            }
-            catch(SQLException e){
-                throw new SQLException("SQL select from PostalHubRelations failed! \nSource: underservedPostalByArea\nDetails: " + e.getMessage());
-            }
-        }
-        if(postalAreaHubs.isEmpty() && noServicePostals.isEmpty()){   //no postal codes exists, so just return an empty list
-            return underservedPostals;
+        if(pushdownQueries){
+            return underservedPostalsFromAggregates(limit, true, "underservedPostalByArea");
         }
-        postalAreaHubs = sortMapByValue(postalAreaHubs);    //sort the postalAreaHubs map by its values in descending order
-        float valueAtLimit = -1;    //variable to store areaPerHub of postal code at limit
-        int counter = 0;
+        List<String> underservedPostals = new ArrayList<>();
         //add all the postal codes that are not serviced by any hubs to the beginning of underservedPostals list
         //(this is because these postal codes are the most underserved by default regardless of their areas
         //and are all tied with a areaPerHub of 0 meaning they will all be added to the list regardless of the limit argument)
-        for(int i=0; i<noServicePostals.size(); i++){
-            underservedPostals.add(noServicePostals.get(i));
-            counter++;
-        }
-        for(Map.Entry<String, Float> entry: postalAreaHubs.entrySet()){   //iterate through the sorted postalAreaHubs map
-            if(counter<limit-1){   //postal code is before list limit, so just add it
+        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){    //iterate through the postalCodes map
+            if(postalHubIndex.getNumberOfPostalHubs(entry.getValue().getSymbolId())==0){
                 underservedPostals.add(entry.getKey());
-                counter++;
             }
-            else if(counter==limit-1){    //postal code is at list limit, so add it and store its areaPerHub value
-                underservedPostals.add(entry.getKey());
-                counter++;
-                valueAtLimit = entry.getValue();
+        }
+        int remainingLimit = limit - underservedPostals.size();   //number of spots left in the list for postal codes that are serviced by hubs
+        if(remainingLimit<1){   //the unserviced postal codes already fill the list
+            return underservedPostals;
+        }
+        //rank the remaining postal codes by their areaPerHub (area/number of servicing hubs) in descending order, keeping only the top
+        //<remainingLimit> postal codes and the postal codes that tie in areaPerHub with the postal code at the limit
+        TopKRanking<String> postalAreaHubs = new TopKRanking<>(remainingLimit);    //ranking of each postal code by its area per hub (area/number of servicing hubs)
+        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){
+            float postalHubs = (float) postalHubIndex.getNumberOfPostalHubs(entry.getValue().getSymbolId());    //get the total number of hubs that service this postal code
+            if(postalHubs==0){   //postal code is not serviced by any hubs (already added above)
+                continue;
             }
-            else{   //postal code is passed list limit
-                if(entry.getValue()==valueAtLimit){   //add postal codes that tie in areaPerHub with the postal code at the limit
-                    underservedPostals.add(entry.getKey());
-                }
-                else{
-                    break;
-                }
+            //calculate this postal code's areaPerHub and add its identifier and that calculated value to the ranking
+            float areaPerHub = ((float) entry.getValue().getArea()) / postalHubs;
+            postalAreaHubs.add(entry.getKey(), areaPerHub);
+        }
+        underservedPostals.addAll(postalAreaHubs.getRanking());
+        return underservedPostals;
+    }
+
+
+
+    //the pushdown version of underservedPostalByPopulation (byArea is false) and underservedPostalByArea (byArea is true) [see setPushdownQueries]
+    private List<String> underservedPostalsFromAggregates(int limit, boolean byArea, String source) throws SQLException{
+        List<String> underservedPostals = new ArrayList<>();
+        //the postal codes are read in a single pass: the ones that are not serviced by any hubs come first regardless of the limit (see
+        //underservedPostalByPopulation), and the rest are ranked by their capitaPerHub or areaPerHub in descending order. The number of spots
+        //left for the ranked postal codes is only known at the end, so up to <limit> of them are ranked and the ranking is cut down afterwards
+        TopKRanking<String> ranking = new TopKRanking<>(limit);
+        forEachPostalHubAggregate(source, postal -> {
+            if(postal.getHubCount()==0){
+                underservedPostals.add(postal.getPostalCodeId());
+                return;
             }
+            float postalHubs = (float) postal.getHubCount();
+            float perHub = byArea ? ((float) postal.getArea()) / postalHubs : ((float) postal.getPopulation()) / postalHubs;
+            ranking.add(postal.getPostalCodeId(), perHub);
+        });
+        int remainingLimit = limit - underservedPostals.size();   //number of spots left in the list for postal codes that are serviced by hubs
+        if(remainingLimit<1){   //the unserviced postal codes already fill the list
+            return underservedPostals;
         }
+        underservedPostals.addAll(ranking.getRanking(remainingLimit));
         return underservedPostals;
     }
 
@@ -643,6 +807,43 @@ public class PowerService{
 
 
     List<Integer> rateOfServiceRestoration(float increment) throws Exception{
+        validateRestorationIncrement(increment);
+        if(distributionHubs.isEmpty()){
+            throw new IllegalArgumentException("No distribution hubs exists (invalid)!\nSource: rateOfServiceRestoration");
+        }
+        return createRestorationSimulator().simulate(increment);
+    }
+
+
+
+    //this method is the multi-increment version of rateOfServiceRestoration (i.e., for plotting the curve at 1%, 5% and 10% at once). It returns
+    //the rateOfServiceRestoration list of each increment, in the order the increments were supplied. The repairs are only simulated once, and
+    //each increment's list is then read off the simulated repair events
+    List<List<Integer>> rateOfServiceRestoration(List<Float> increments) throws Exception{
+        if(increments==null){
+            throw new IllegalArgumentException("Increments is null!\nSource: rateOfServiceRestoration");
+        }
+        for(Float increment: increments){
+            if(increment==null){
+                throw new IllegalArgumentException("Increment is null!\nSource: rateOfServiceRestoration");
+            }
+            validateRestorationIncrement(increment);
+        }
+        if(distributionHubs.isEmpty()){
+            throw new IllegalArgumentException("No distribution hubs exists (invalid)!\nSource: rateOfServiceRestoration");
+        }
+        RestorationSimulator simulator = createRestorationSimulator();
+        List<List<Integer>> ratesOfRestoration = new ArrayList<>();
+        for(Float increment: increments){
+            ratesOfRestoration.add(simulator.simulate(increment));
+        }
+        return ratesOfRestoration;
+    }
+
+
+
+    //method used during rateOfServiceRestoration to check that an increment is valid
+    private void validateRestorationIncrement(float increment){
         if(increment<=0){
             throw new IllegalArgumentException("Increment is zero or negative (invalid)!\nSource: rateOfServiceRestoration");
         }
@@ -652,23 +853,12 @@ public class PowerService{
         if(increment<0.001){
             throw new IllegalArgumentException("Increment is too small (less than 0.001) [Invalid: granularity issue]!\nSource: rateOfServiceRestoration");
         }
-        if(distributionHubs.isEmpty()){
-            throw new IllegalArgumentException("No distribution hubs exists (invalid)!\nSource: rateOfServiceRestoration");
-        }
-        List<Integer> rateOfRestoration = new ArrayList<>();
-        float listIncrement = 0;   //variable to store the current increment value
-        int listSize = 0;   //variable to store rateOfRestoration's correct size based on the value of the increment argument
-        while(listIncrement<=1){
-            rateOfRestoration.add(0);  //add 0 to represent 0 hours to the list
-            listSize++;
-            if(listIncrement==1){   //current increment has reach 100%, so stop adding 0s to the list
-                break;
-            }
-            listIncrement += increment;   //add "increment" value to the current increment variable
-            if(listIncrement>1){   //current increment goes passed 100%, so set it back to 100% (this happens in cases where increment is 0.6 for example)
-                listIncrement = 1;
-            }
-        }
+    }
+
+
+
+    //method used during rateOfServiceRestoration to set up a RestorationSimulator for the current state of the hubs (see RestorationSimulator)
+    private RestorationSimulator createRestorationSimulator() throws Exception{
         List<HubImpact> fixOrder = fixOrder(distributionHubs.size());   //get a list of hubs to fix sorted by their impacts in descending order
         //remove all hubs with an impact of 0 since they will have no effect on the percentage of population that are out of service
         for(int i=fixOrder.size()-1; i>=0; i--){
@@ -679,143 +869,153 @@ public class PowerService{
                 break;
             }
         }
-        if(fixOrder.isEmpty()){   //there are no hubs with an impact > 0 that need repair, so return the list of 0s
-            return rateOfRestoration;
+        if(fixOrder.isEmpty()){   //there are no hubs with an impact > 0 that need repair (the simulator will return lists of 0s)
+            return new RestorationSimulator(fixOrder, 0, 0);
         }
         int totalPopulation = getTotalServicedPopulation();   //get the total amount of people being serviced by at least one hub (excluding postal codes that are not serviced by any hubs [see design decisions in external documentation ofr more details)]
-        float populationOutOfServiceFloat = 0;
-        try{   //calculate the total amount of people out of service due to a hub outage (i.e., excluding populations out of service due to not being serviced by any hubs in the first place)
-            for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){
-                float postalCodePopOutOfService = db.percentageOfPostalDamagedHubs(entry.getKey());
-                populationOutOfServiceFloat += entry.getValue().getPopulation() * postalCodePopOutOfService;
-            }
-        }
-        catch(SQLException e){
-            throw new SQLException("SQL join/select from PostalHubRelations and DistributionHubs failed!\nSource: peopleOutOfService\nDetails: " + e.getMessage());
-        }
+        //calculate the total amount of people out of service due to a hub outage (i.e., excluding populations out of service due to not being serviced by any hubs in the first place)
+        float populationOutOfServiceFloat = postalHubIndex.hubOutagePopulationOutOfService();
         int populationOutOfService = (int) Math.ceil(populationOutOfServiceFloat);   //round up the population out of service
-        if(populationOutOfService==0){   //no people are out of service due to a hub outage, so return the list of 0s
-            return rateOfRestoration;
-        }
-        rateOfRestoration.clear();
-        double percentageOfInServicePop = (((double) totalPopulation)- ((double) populationOutOfService)) / ((double) totalPopulation);
-        double alreadyHavePowerIncrements = Math.floor(percentageOfInServicePop/increment);   //calculate how many "increments" of the population already have power
-        float currIncrement = 0;   //variable to store the current increment we are operating on
-        for(int i=0; i<=alreadyHavePowerIncrements; i++){   //add 0s to the list to indicate how many "increments" of the population already have power before performing any repairs
-            rateOfRestoration.add(0);
-            currIncrement += increment;   //update current increment
-        }
-        if(currIncrement>1){   //reset current increment to 1 if it has gone over 1 (i.e., when increment is 0.6)
-            currIncrement = 1;
-        }
-        float repairTimeElapsed = 0;
-        for(int i=0; i<fixOrder.size(); i++){   //iterate through the hubs that need repair (sorted by their impacts in descending order)
-            repairTimeElapsed += fixOrder.get(i).getRepairTime();
-            percentageOfInServicePop += ((double) fixOrder.get(i).getPopulationEffected()) / ((double) totalPopulation);   //calculate the new percentage of population in service after this hub is repaired
-            while(percentageOfInServicePop>=currIncrement){   //add elapsedRepairTime(s) to the list to indicate how many new "increments" of the population are in service after this repair
-                if(currIncrement==1){
-                    rateOfRestoration.add((int) Math.ceil(repairTimeElapsed));
-                    currIncrement = -1;
-                    break;
-                }
-                rateOfRestoration.add((int) Math.ceil(repairTimeElapsed));
-                if(currIncrement+increment>1){    //reset current increment to 1 if it has gone over 1 (i.e., when increment is 0.6)
-                    currIncrement = 1;
-                }
-                else{
-                    currIncrement += increment;
-                }
-            }
-        }
-        while(rateOfRestoration.size()<listSize){    //in case percentage of in service population is 0.9999999 but should be 1 (floating point calculation inaccuracy)
-            rateOfRestoration.add((int) Math.ceil(repairTimeElapsed));
-        }
-        return rateOfRestoration;
+        return new RestorationSimulator(fixOrder, totalPopulation, populationOutOfService);
     }
 
 
 
 
-    //this method is used during rateOfRestoration. It calculates and returns the total population that is serviced by at least on hub
+    //this method is used during rateOfRestoration. It returns the total population that is serviced by at least on hub (the postal-hub
+    //index keeps a running total, updated whenever a postal code gets its first hub or a serviced postal code is added)
     private int getTotalServicedPopulation(){
-        int totalPopulation = 0;
-        for(Map.Entry<String, DamagedPostalCodes> entry: postalCodes.entrySet()){   //iterate through all the postal codes in the postalCodes map
-            for(Map.Entry<String, HubImpact> hub: distributionHubs.entrySet()){   //iterate through all the distribution hubs in the distributionHubs map
-                Set<String> servicedAreas = hub.getValue().getServicedAreas();
-                Iterator itr = servicedAreas.iterator();
-                boolean postalIsServiced = false;
-                while(itr.hasNext()){   //iterate through all the postal codes stored in this hub's servicedAreas set
-                    String postalCode = (String) itr.next();
-                    if(postalCode.equals(entry.getKey())){   //this postal code is serviced by at least one hub (since it is in this hub's servicedAreas)
-                        totalPopulation += entry.getValue().getPopulation();   //add this postal code's population to the total population
-                        postalIsServiced = true;
-                        break;
-                    }
-                }
-                if(postalIsServiced){   //go to the next postal code
-                    break;
-                }
-            }
-        }
-        return totalPopulation;
+        return postalHubIndex.getServicedPopulation();
     }
 
 
 
 
     List<HubImpact> repairPlan(String startHub, int maxDistance, float maxTime) throws Exception{
+        HubImpact firstHub = findRepairPlanStartHub(startHub, maxDistance, maxTime, "repairPlan");
+        List<HubImpact> repairPlan = repairPlanCache.get(firstHub, maxDistance, maxTime);   //the same query may have been calculated recently
+        if(repairPlan==null){
+            repairPlan = calculateRepairPlan(firstHub, maxDistance, maxTime, hubSpatialIndex);
+            repairPlanCache.put(firstHub, maxDistance, maxTime, repairPlan);
+        }
+        return repairPlan;
+    }
+
+
+
+    //this method is the batch version of repairPlan, used when a repair plan is needed for several starting hubs at once (i.e., one per crew).
+    //It returns a map of each starting hub's identifier (in standard format) and its repair plan, in the order the starting hubs were supplied.
+    //Each plan is the same as the one repairPlan would return for that starting hub, but the work that every plan needs is only done once
+    //(the downed hubs are indexed by location once, so each plan's range search skips the hubs that are in service), and the plans that are
+    //not in the repair plan cache are calculated concurrently on the common fork/join pool
+    Map<String, List<HubImpact>> repairPlans(Collection<String> startHubs, int maxDistance, float maxTime) throws Exception{
+        if(startHubs==null){
+            throw new IllegalArgumentException("startHubs is null! \nSource: repairPlans");
+        }
+        //validate every starting hub before any plan is calculated (duplicates only get one plan)
+        Map<String, HubImpact> firstHubs = new LinkedHashMap<>();
+        for(String startHub: startHubs){
+            HubImpact firstHub = findRepairPlanStartHub(startHub, maxDistance, maxTime, "repairPlans");
+            firstHubs.put(firstHub.getHubId(), firstHub);
+        }
+        //index the downed hubs by their locations (these are the only hubs any of the plans can include)
+        HubSpatialIndex downHubsByLocation = new HubSpatialIndex(HUB_GRID_CELL_SIZE);
+        for(HubImpact hub: distributionHubs.values()){
+            if(!hub.getInService()){
+                downHubsByLocation.add(hub);
+            }
+        }
+        //calculate the plans that are not in the repair plan cache
+        Map<String, List<HubImpact>> repairPlans = new LinkedHashMap<>();
+        Map<String, Future<List<HubImpact>>> planTasks = new LinkedHashMap<>();
+        for(HubImpact firstHub: firstHubs.values()){
+            List<HubImpact> cachedPlan = repairPlanCache.get(firstHub, maxDistance, maxTime);
+            repairPlans.put(firstHub.getHubId(), cachedPlan);   //plans that are not cached yet are filled in below (this keeps the map in order)
+            if(cachedPlan==null){
+                planTasks.put(firstHub.getHubId(), ForkJoinPool.commonPool().submit(() -> calculateRepairPlan(firstHub, maxDistance, maxTime, downHubsByLocation)));
+            }
+        }
+        for(Map.Entry<String, Future<List<HubImpact>>> planTask: planTasks.entrySet()){
+            try{
+                List<HubImpact> repairPlan = planTask.getValue().get();
+                repairPlanCache.put(firstHubs.get(planTask.getKey()), maxDistance, maxTime, repairPlan);
+                repairPlans.put(planTask.getKey(), repairPlan);
+            }
+            catch(ExecutionException e){
+                throw new Exception("Repair plan calculation failed!\nSource: repairPlans\nDetails: " + e.getCause().getMessage());
+            }
+        }
+        return repairPlans;
+    }
+
+
+
+    //method used during repairPlan and repairPlans to validate their arguments and to find the starting hub (the source argument is the name
+    //of the calling method, which is reported in the exceptions)
+    private HubImpact findRepairPlanStartHub(String startHub, int maxDistance, float maxTime, String source){
         if(startHub==null){
-            throw new IllegalArgumentException("startHub is null! \nSource: repairPlan");
+            throw new IllegalArgumentException("startHub is null! \nSource: " + source);
         }
         startHub = startHub.replaceAll("\\s+","");  //convert starting hub id to standard format (no spaces, uppercase)
         if(startHub.equals("")){
-            throw new IllegalArgumentException("startHub is empty String! \nSource: repairPlan");
+            throw new IllegalArgumentException("startHub is empty String! \nSource: " + source);
         }
         startHub = startHub.toUpperCase();   //convert starting hub id to standard format (no spaces, uppercase)
         if(!distributionHubs.containsKey(startHub)){   //check if the starting hub exists
-            throw new IllegalArgumentException("startHub does not exist (has not been added)!\nSource: repairPlan");
+            throw new IllegalArgumentException("startHub does not exist (has not been added)!\nSource: " + source);
         }
         if(distributionHubs.get(startHub).getInService()){
-            throw new IllegalArgumentException("startHub is already in service (invalid)!\nSource: repairPlan");
+            throw new IllegalArgumentException("startHub is already in service (invalid)!\nSource: " + source);
         }
         if(maxDistance<0){
-            throw new IllegalArgumentException("maxDistance is negative (invalid)!\nSource: repairPlan");
+            throw new IllegalArgumentException("maxDistance is negative (invalid)!\nSource: " + source);
         }
         if(maxTime<0){
-            throw new IllegalArgumentException("maxTime is negative (invalid)!\nSource: repairPlan");
+            throw new IllegalArgumentException("maxTime is negative (invalid)!\nSource: " + source);
         }
-        //get startHub and add it as the first hub in the repairPlan
-        HubImpact firstHub = distributionHubs.get(startHub);
+        return distributionHubs.get(startHub);
+    }
+
+
+
+    //method used during repairPlan and repairPlans to calculate the repair plan of a (validated) starting hub. The hubs within <maxDistance>
+    //of the starting hub are found through the supplied spatial index
+    private List<HubImpact> calculateRepairPlan(HubImpact firstHub, int maxDistance, float maxTime, HubSpatialIndex hubsByLocation){
+        //add startHub as the first hub in the repairPlan
         List<HubImpact> repairPlan = new ArrayList<>();
         repairPlan.add(firstHub);
         //now, we calculate the hubs within <maxDistance> of startHub
-        int firstHubX = firstHub.getLocation().getX();
-        int firstHubY = firstHub.getLocation().getY();
+        int firstHubX = firstHub.getX();
+        int firstHubY = firstHub.getY();
         List<HubImpact> hubsInRange = new ArrayList<>();
         float highestImpact = -1;   //variable to store highest impact value of inRange hubs found so far
         HubImpact endHub = null;   //variable to store endHub based on the highest impact inRange hub found so far
         double furthestDistance = -1; //variable to store distance of endHub from startHub
-        for(Map.Entry<String, HubImpact> hub: distributionHubs.entrySet()){   //iterate through the hubs in distributionHubs to find the hubs that are within <maxDistance> of startHub
-            if(hub.getValue().getInService()){   //skips hubs already in service
+        //ask the spatial index for the hubs that are within <maxDistance> of startHub (only the hubs in the grid cells around startHub are looked at).
+        //They are sorted by identifier, so that the plan does not depend on how the index happens to store them
+        List<HubImpact> nearbyHubs = hubsByLocation.findHubsWithinDistance(firstHubX, firstHubY, maxDistance);
+        nearbyHubs.sort(new Comparator<HubImpact>(){
+            public int compare(HubImpact a, HubImpact b){
+                return a.getHubId().compareTo(b.getHubId());
+            }
+        });
+        for(HubImpact potentialHub: nearbyHubs){
+            if(potentialHub.getInService()){   //skips hubs already in service
                 continue;
             }
-            if(hub.getValue().getHubId().equals(firstHub.getHubId())){   //skip startHub
+            if(potentialHub.getHubId().equals(firstHub.getHubId())){   //skip startHub
                 continue;
             }
-            HubImpact potentialHub = hub.getValue();
-            int potentialHubX = potentialHub.getLocation().getX();
-            int potentialHubY = potentialHub.getLocation().getY();
             //calculate distance of this hub from startHub using Pythagorean theorem (c^2 = a^2 + b^2)
-            double distanceFromStart = Math.sqrt(Math.pow((potentialHubX - firstHubX), 2) + Math.pow((potentialHubY - firstHubY), 2));
-            if(distanceFromStart<=(double)maxDistance){   //hub is within range
-                hubsInRange.add(hub.getValue());
-                //check if this hub has the highest impact so far. If it does, then it becomes the new endHub
-                //OR, if this hub's impact is equal to the highest impact, then check if it is further than the currently designated endHub
-                //since further distance is the tie-breaker between potential endHubs that are equal in impact (see design decisions in external documentation for more details)
-                if(hub.getValue().getImpact()>highestImpact || (hub.getValue().getImpact()==highestImpact && distanceFromStart>furthestDistance)){
-                    endHub = hub.getValue();
-                    highestImpact = hub.getValue().getImpact();
-                }
+            double distanceFromStart = HubSpatialIndex.distance(firstHubX, firstHubY, potentialHub.getX(), potentialHub.getY());
+            hubsInRange.add(potentialHub);
+            //check if this hub has the highest impact so far. If it does, then it becomes the new endHub
+            //OR, if this hub's impact is equal to the highest impact, then check if it is further than the currently designated endHub
+            //since further distance is the tie-breaker between potential endHubs that are equal in impact (see design decisions in external documentation for more details)
+            if(potentialHub.getImpact()>highestImpact || (potentialHub.getImpact()==highestImpact && distanceFromStart>furthestDistance)){
+                endHub = potentialHub;
+                highestImpact = potentialHub.getImpact();
+                furthestDistance = distanceFromStart;
             }
         }
         //there are no hubs in range of startHub, so return list containing only startHub
@@ -833,34 +1033,33 @@ public class PowerService{
         //in the case where startHub and endHub reside on the same x or y coordinate (forming a line between them),
         //then there is only one possible path. So, the repair plan would be startHub, all intermediate hubs on that line
         //between startHub and endHub, and endHub
-        if(firstHubX==endHub.getLocation().getX() || firstHubY==endHub.getLocation().getY()){
+        if(firstHubX==endHub.getX() || firstHubY==endHub.getY()){
             repairPlan = calculate1DRepairPlan(firstHub, endHub, intermediateHubs);
             return repairPlan;
         }
         //otherwise, a rectangle forms between startHub and endHub. So, we need to calculate the best possible valid repair plan path between the two
         else{
-            //pass the relevant hub to a RepairPlanGrid object to create a 2d array to represent locational grid
-            //and set start, end, and intermediate hubs on it
+            //pass the relevant hubs to a RepairPlanGrid object to place start, end, and intermediate hubs on a (sparse) locational grid
             RepairPlanGrid repairPlanGrid = new RepairPlanGrid(firstHub, endHub, intermediateHubs);
-            List<List<HubImpact>> pathCombinations = new ArrayList<>();
-            PowerSets powerSet = new PowerSets();
-            //pass the set of intermediate hubs to a PowerSets object to calculate all possible subsets
-            //For example, if [A1, B2] are the intermediate hubs, then their subsets (power-set) are [[], [A1], [B2], [A1,B2]]
-            List<List<HubImpact>> hubSubsets = powerSet.calculateHubSubsets(intermediateHubs);
-            HubPathCombinations combinations = new HubPathCombinations();
-            //remove the empty set of the subsets (since power-sets always start with an empty set)
-            hubSubsets.remove(0);
-            //pass each of the intermediate hub subsets to a HubPathCombinations object to find all possible path combinations between the intermediate
-            //hubs of a subset. For example, for the subset [A1, B2, C3], then the possible path combinations would be
-            //[A1,B2,C3], [A1,C3,B2], [B2,A1,C3], [B2,C3,A1], [C3,A1,B2], and [C3,B2,A1]
-            for(int i=0; i<hubSubsets.size(); i++){
-                pathCombinations.addAll(combinations.getPathCombinations(hubSubsets.get(i)));
-            }
-            //clear the repairPlan and add startHub at the beginning of it
-            repairPlan.clear();
-            repairPlan.add(firstHub);
-            //pass all possible path combinations to the RepairPlanGrid object to find the best (most impactful) valid path
-            List<HubImpact> bestPossiblePath = repairPlanGrid.findBestRepairPath(pathCombinations, endHub);
+            //the number of path combinations grows factorially with the number of intermediate hubs, so past EXHAUSTIVE_PLAN_LIMIT hubs,
+            //the best path is found by RepairPlanGrid's threshold solver instead (which finds the same best path in O(n log n) time)
+            if(intermediateHubs.size()>EXHAUSTIVE_PLAN_LIMIT){
+                repairPlan.addAll(repairPlanGrid.solveBestRepairPath());
+                repairPlan.add(endHub);
+                return repairPlan;
+            }
+            //go through the valid path combinations between the intermediate hubs one at a time. For example, for the intermediate hubs
+            //[A1, B2, C3], the path combinations are every ordering of every subset of them ([A1], [B2], [A1,B2], [B2,A1], ... [C3,B2,A1]),
+            //but RepairPathGenerator only generates the ones that are valid and can still beat the best path found so far
+            //pass the valid path combinations to the RepairPlanGrid object to find the best (most impactful) one. For larger plans, the search
+            //is split between the threads of the common fork/join pool (which returns the same path as searching on a single thread)
+            List<HubImpact> bestPossiblePath;
+            if(parallelRepairPlans && intermediateHubs.size()>=PARALLEL_PLAN_THRESHOLD){
+                bestPossiblePath = repairPlanGrid.findBestRepairPathInParallel();
+            }
+            else{
+                bestPossiblePath = repairPlanGrid.findBestRepairPath(repairPlanGrid.generateValidPaths());
+            }
             //add the best possible path to the repairPlan
             repairPlan.addAll(bestPossiblePath);
             //add endHub to the end of the repairPlan
@@ -876,10 +1075,10 @@ public class PowerService{
     private List<HubImpact> findIntermediateHubs(HubImpact startHub, HubImpact endHub, List<HubImpact> hubsInRange, float maxTime){
         List<HubImpact> intermediateHubs = new ArrayList<>();
         //get the startHub and endHub's coordinates to form rectangle between them
-        int startX = startHub.getLocation().getX();
-        int startY = startHub.getLocation().getY();
-        int endX = endHub.getLocation().getX();
-        int endY = endHub.getLocation().getY();
+        int startX = startHub.getX();
+        int startY = startHub.getY();
+        int endX = endHub.getX();
+        int endY = endHub.getY();
         for(int i=0; i<hubsInRange.size(); i++){   //iterate through all hubs in range of startHub
             if(hubsInRange.get(i).getHubId().equals(endHub.getHubId())){   //skip endHub
                 continue;
@@ -888,8 +1087,8 @@ public class PowerService{
                 continue;
             }
             //get this hub's coordinates
-            int intermediateX = hubsInRange.get(i).getLocation().getX();
-            int intermediateY = hubsInRange.get(i).getLocation().getY();
+            int intermediateX = hubsInRange.get(i).getX();
+            int intermediateY = hubsInRange.get(i).getY();
             //check whether this hub lies in the rectangle between startHub and endHub. But, to do that, we need to know whether that rectangle is in
             //quadrant 1, 2, 3, or 4 relative to startHub. For example, if startHub is at (0,0) and endHub is at (2,2). Then the rectangle between them
             //is situated in quadrant 1 of startHub where the diagonal line would be going towards the top right corner from startHub
@@ -937,17 +1136,17 @@ public class PowerService{
     private List<HubImpact> calculate1DRepairPlan(HubImpact startHub, HubImpact endHub, List<HubImpact> intermediateHubs){
         //first, we need to know whether startHub and endHub lie on the same x or y coordinate
         boolean xIsEqual = false;
-        if(startHub.getLocation().getX()==endHub.getLocation().getX()){
+        if(startHub.getX()==endHub.getX()){
             xIsEqual = true;
         }
         List<Integer> intermediateCoordinates = new ArrayList<>();
         //then, we add all the intermediate hub's x or y coordinates to a list depending on whether startHub and endHub share the same x or y coordinate
         for(int i=0; i<intermediateHubs.size(); i++){
             if(xIsEqual){   //startHub and endHub share the same x coordinate
-                intermediateCoordinates.add(intermediateHubs.get(i).getLocation().getY());   //add all intermediate hub y coordinates to list
+                intermediateCoordinates.add(intermediateHubs.get(i).getY());   //add all intermediate hub y coordinates to list
             }
             else{   //startHub and endHub share the same y coordinate
-                intermediateCoordinates.add(intermediateHubs.get(i).getLocation().getX());   //add all intermediate hub x coordinates to list
+                intermediateCoordinates.add(intermediateHubs.get(i).getX());   //add all intermediate hub x coordinates to list
             }
         }
         //now, we sort the list of intermediate hub x or y coordinates in ascending order
@@ -956,10 +1155,10 @@ public class PowerService{
         //goes backwards horizontally or downwards vertically
         //For example, if startHub is (0,0) and endHub is (0,-6), then the list of intermediate hub y coordinates needs to be reversed to descending order
         //since the path goes downwards from startHub towards endHub
-        if(xIsEqual && (startHub.getLocation().getX()>endHub.getLocation().getX())){
+        if(xIsEqual && (startHub.getX()>endHub.getX())){
             Collections.reverse(intermediateCoordinates);
         }
-        else if(!xIsEqual && (startHub.getLocation().getY()>endHub.getLocation().getY())){
+        else if(!xIsEqual && (startHub.getY()>endHub.getY())){
             Collections.reverse(intermediateCoordinates);
         }
         //create a list for repairPlan and store startHub at the beginning
@@ -970,12 +1169,12 @@ public class PowerService{
             //match this coordinate with its intermediate hub and add it to the repairPlan list
             for(int k=0; k<intermediateHubs.size(); k++){
                 if(!xIsEqual){
-                    if(intermediateHubs.get(k).getLocation().getX()==intermediateCoordinates.get(i)){
+                    if(intermediateHubs.get(k).getX()==intermediateCoordinates.get(i)){
                         repairPlan.add(intermediateHubs.get(k));
                     }
                 }
                 else{
-                    if(intermediateHubs.get(k).getLocation().getY()==intermediateCoordinates.get(i)){
+                    if(intermediateHubs.get(k).getY()==intermediateCoordinates.get(i)){
                         repairPlan.add(intermediateHubs.get(k));
                     }
                 }
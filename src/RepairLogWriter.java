@@ -0,0 +1,438 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+
+//this class is used by hubRepair when PowerService's repair log writer is turned on (see PowerService's enableRepairLogWriter) to log repairs
+//in groups instead of inserting one RepairLog row per call on its own connection. append only adds the entry to a buffer and returns, and a
+//committer thread stores every entry that arrived since its last group in one go (group commit), so the rows of many repairs share a
+//single write. flush and close wait until the appended entries are stored, and report the errors of groups that could not be. Where a
+//group goes depends on how the writer is created:
+//  without a segment directory: each group is inserted into the RepairLog table as one JDBC batch (which the driver rewrites into multi-row
+//                               inserts)
+//  with a segment directory:    each group is appended to the current segment file (see HubWrite's toEntry) and forced to disk once. A
+//                               second thread inserts the stored entries into the database in batches in the background. Each batch also
+//                               stores the sequence number of its last entry (see Database's applyHubWrites), so entries left in the
+//                               segments when the program stops are inserted (exactly once) the next time the writer is created with the
+//                               same directory. A new segment is started once the current one reaches SEGMENT_SIZE, and segments are
+//                               deleted once all their entries are in the database
+//A group or database batch that fails is retried after RETRY_DELAY, unless retrying cannot help (see HubWriteBehind's isPermanent), in which
+//case the thread stops and later appends and flushes fail with its error. Entries that were appended but not stored yet are lost if the
+//program stops without calling close
+public class RepairLogWriter {
+
+    private static final int MAX_BATCH_SIZE = 1024;   //maximum number of entries in one group, and in one database transaction
+    private static final long SEGMENT_SIZE = 16*1024*1024;   //a new segment file is started once the current one reaches 16MB
+    private static final long RETRY_DELAY = 5000;   //a failed group or database batch is tried again after 5 seconds
+    private static final String SEGMENT_PREFIX = "repairlog-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private GridStorage db;
+    private Path directory;   //directory of the segment files (null if entries go straight to the database)
+    private String checkpointId;   //id under which the last inserted sequence number is stored in the database (the directory's path)
+    private final Object lock;   //guards every field below
+    private ArrayDeque<HubWrite> buffer;   //entries appended that the committer has not stored yet, in order
+    private long appendedSequence;   //sequence number of the last entry appended (entries are numbered in the order they are appended)
+    private long storedSequence;   //sequence number of the last entry stored (in the segment files, or in the database without them)
+    private long flushedSequence;   //sequence number of the last entry that is in the database
+    private Exception lastError;   //error of the last failed group or database batch (null once one succeeds)
+    private Exception fatalError;   //error that stopped the committer or the flusher (null if neither has stopped)
+    private boolean closed;
+    private Thread committer;
+    //fields only used with segment files
+    private FileChannel segment;   //segment file that groups are appended to (null if a new one has to be started, see storeInSegment)
+    private ArrayDeque<Path> segments;   //every segment file that still has entries the database may not have (oldest first, the current one last)
+    private ArrayDeque<Long> segmentLastSequences;   //sequence number of the last entry in each of segments (the current one's grows as groups are stored)
+    private ArrayDeque<HubWrite> unflushed;   //stored entries that have not been inserted into the database, in order
+    private Thread flusher;
+
+
+    //creates the writer and starts its threads. segmentDirectory may be null, in which case entries are inserted into the database directly.
+    //Otherwise, the directory is created if needed, and entries left in its segments by an earlier run are queued for the database
+    RepairLogWriter(GridStorage db, String segmentDirectory) throws IOException, SQLException{
+        this.db = db;
+        lock = new Object();
+        buffer = new ArrayDeque<>();
+        appendedSequence = 0;
+        storedSequence = 0;
+        flushedSequence = 0;
+        closed = false;
+        if(segmentDirectory!=null){
+            directory = Paths.get(segmentDirectory).toAbsolutePath();
+            checkpointId = directory.toString();
+            segments = new ArrayDeque<>();
+            segmentLastSequences = new ArrayDeque<>();
+            unflushed = new ArrayDeque<>();
+            flushedSequence = db.getWriteBehindCheckpoint(checkpointId);
+            appendedSequence = flushedSequence;
+            Files.createDirectories(directory);
+            recoverSegments();
+            storedSequence = appendedSequence;
+            openSegment(appendedSequence+1);
+            flusher = new Thread(this::flushToDatabase, "RepairLogFlusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+        committer = new Thread(this::commitGroups, "RepairLogCommitter");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+
+
+    //method used by the constructor to read the segments left by an earlier run (oldest first). Entries the database already has are
+    //skipped, and a partly written entry at the end of a segment is dropped (its group was never stored, see storeInSegment). A segment may
+    //start with copies of the entries at the end of the previous one (a group that failed part way and was written again in a new segment),
+    //which are skipped as well. Otherwise the sequence numbers must follow each other with no gaps from the database's checkpoint on, so an
+    //entry that was stored but cannot be read back (an unreadable entry in the middle of a segment, or a missing segment) fails the
+    //constructor instead of being skipped
+    private void recoverSegments() throws IOException{
+        List<Path> files = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)){
+            for(Path file: stream){
+                files.add(file);
+            }
+        }
+        Collections.sort(files);   //segment names hold their first sequence number padded with 0s, so they sort in order
+        long expectedSequence = 0;   //sequence number the next entry must have (0 until the first entry is read)
+        for(Path file: files){
+            List<HubWrite> entries = new ArrayList<>();
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                channel.truncate(HubWrite.readEntries(channel, entries::add));   //drop a partly written entry at the end (if any)
+            }
+            catch(IOException e){
+                throw new IOException("Repair log segment is corrupt!\nSource: RepairLogWriter constructor\nDetails: " + file + ": " + e.getMessage());
+            }
+            long segmentLastSequence = 0;
+            boolean segmentStart = true;   //whether no entry of this segment has been kept yet
+            for(HubWrite entry: entries){
+                if(segmentStart && expectedSequence!=0 && entry.getSequence()<expectedSequence){   //copy of an entry already read
+                    continue;
+                }
+                segmentStart = false;
+                //the first entry may be one the database already has, but it cannot come after the database's last one
+                long expected = expectedSequence==0 ? Math.min(entry.getSequence(), flushedSequence+1) : expectedSequence;
+                if(entry.getSequence()!=expected){
+                    throw new IOException("Repair log segments are missing entries!\nSource: RepairLogWriter constructor\nDetails: " + file + " has entry " + entry.getSequence() + " where entry " + expected + " was expected");
+                }
+                expectedSequence = entry.getSequence()+1;
+                segmentLastSequence = entry.getSequence();
+                appendedSequence = Math.max(appendedSequence, entry.getSequence());
+                if(entry.getSequence()>flushedSequence){
+                    unflushed.add(entry);
+                }
+            }
+            if(segmentLastSequence<=flushedSequence){   //the database has every entry in this segment
+                Files.delete(file);
+                continue;
+            }
+            segments.add(file);
+            segmentLastSequences.add(segmentLastSequence);
+        }
+    }
+
+
+
+    //method to start a new segment file (named after the sequence number of its first entry)
+    private void openSegment(long firstSequence) throws IOException{
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if(file.equals(segments.peekLast())){   //the current segment never stored a group, so it is started over under the same name
+            segments.removeLast();
+            segmentLastSequences.removeLast();
+        }
+        segments.add(file);
+        segmentLastSequences.add(firstSequence-1);   //the segment is empty for now
+    }
+
+
+
+    //method to log a repair. The entry is added to the committer's buffer and the method returns right away (see flush to wait until it is
+    //stored). Throws an IOException if the writer is closed, or has stopped because of an error that retrying cannot fix
+    void append(String employeeId, String hubId, float repairTime, boolean inService) throws IOException{
+        synchronized(lock){
+            if(closed){
+                throw new IOException("Repair log writer is closed!");
+            }
+            if(fatalError!=null){   //the entry would never be stored
+                throw new IOException("Repair log writer stopped after an entry could not be stored!\nDetails: " + fatalError.getMessage());
+            }
+            HubWrite entry = new HubWrite(HubWrite.REPAIR_LOG, hubId, employeeId, repairTime, inService);
+            appendedSequence++;
+            entry.setSequence(appendedSequence);
+            buffer.add(entry);
+            lock.notifyAll();
+        }
+    }
+
+
+
+    //method to wait until every entry appended so far is stored and in the database (with segment files, until the flusher has inserted it).
+    //Throws the error of a group or database batch that fails while waiting (an IOException for segment files, an SQLException for the
+    //database)
+    void flush() throws IOException, SQLException{
+        synchronized(lock){
+            long target = appendedSequence;
+            lastError = null;
+            while(flushedSequence<target){
+                if(fatalError!=null){
+                    throwError(fatalError);
+                }
+                if(lastError!=null){
+                    throwError(lastError);
+                }
+                if(closed){
+                    throw new IOException("Repair log writer is closed!");
+                }
+                try{
+                    lock.wait();
+                }
+                catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the repair log writer!");
+                }
+            }
+        }
+    }
+
+
+
+    //method to throw an error kept by the committer or the flusher as its own type
+    private static void throwError(Exception e) throws IOException, SQLException{
+        if(e instanceof SQLException){
+            throw (SQLException) e;
+        }
+        throw (IOException) e;
+    }
+
+
+
+    //method to stop the writer's threads once the entries appended so far are stored and (with segment files) inserted into the database,
+    //or storing them fails. Entries that are stored in the segment files but could not be inserted stay there for the next run. Throws an
+    //IOException if appended entries could not be stored at all (they are lost)
+    void close() throws IOException{
+        synchronized(lock){
+            closed = true;
+            lock.notifyAll();
+        }
+        try{
+            committer.join();
+            if(flusher!=null){
+                flusher.join();
+            }
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        if(segment!=null){
+            try{
+                segment.close();
+            }
+            catch(IOException e){
+                //nothing to do, every stored group was already forced to disk
+            }
+        }
+        synchronized(lock){
+            if(storedSequence<appendedSequence){
+                Exception error = fatalError!=null ? fatalError : lastError;
+                throw new IOException("Repair log writer closed before every entry was stored!\nDetails: " + (appendedSequence-storedSequence) + " entries were lost" + (error==null ? "" : " (" + error.getMessage() + ")"));
+            }
+        }
+    }
+
+
+
+    //the committer thread's loop
+    private void commitGroups(){
+        while(true){
+            List<HubWrite> group = new ArrayList<>();
+            synchronized(lock){
+                while(buffer.isEmpty() && !closed){
+                    try{
+                        lock.wait();
+                    }
+                    catch(InterruptedException e){
+                        return;
+                    }
+                }
+                if(buffer.isEmpty()){   //closed, and every entry has been stored
+                    lock.notifyAll();   //wake the flusher so it can finish
+                    return;
+                }
+                while(!buffer.isEmpty() && group.size()<MAX_BATCH_SIZE){   //entries appended from now on wait for the next group
+                    group.add(buffer.poll());
+                }
+            }
+            Exception error = null;
+            try{
+                if(directory==null){
+                    db.applyHubWrites(group, null, 0);
+                }
+                else{
+                    storeInSegment(group);
+                }
+            }
+            catch(IOException | SQLException e){
+                error = e;
+            }
+            synchronized(lock){
+                if(error==null){
+                    storedSequence = group.get(group.size()-1).getSequence();
+                    if(directory==null){
+                        flushedSequence = storedSequence;
+                    }
+                    else{
+                        unflushed.addAll(group);
+                        segmentLastSequences.removeLast();
+                        segmentLastSequences.add(storedSequence);
+                    }
+                    lastError = null;
+                    lock.notifyAll();
+                    continue;
+                }
+                for(int i=group.size()-1; i>=0; i--){   //put the group back in front of the entries appended since, to be tried again
+                    buffer.addFirst(group.get(i));
+                }
+                lastError = error;
+                lock.notifyAll();
+                if(error instanceof SQLException && HubWriteBehind.isPermanent((SQLException) error)){
+                    fatalError = error;
+                    return;
+                }
+                if(closed){   //give up, close reports the entries that were not stored
+                    lock.notifyAll();   //wake the flusher so it can finish
+                    return;
+                }
+                try{
+                    lock.wait(RETRY_DELAY);
+                }
+                catch(InterruptedException e){
+                    return;
+                }
+            }
+        }
+    }
+
+
+
+    //method used by the committer thread to append a group to the current segment file with a single write and a single force to disk. A
+    //new segment is started first if the current one is full (it is only closed once the new one is open, so if the new one cannot be
+    //opened, the current segment stays in use), or if the current one could not be cut back after a failed write (see below)
+    private void storeInSegment(List<HubWrite> group) throws IOException{
+        if(segment==null){
+            synchronized(lock){
+                openSegment(group.get(0).getSequence());
+            }
+        }
+        else if(segment.size()>=SEGMENT_SIZE){
+            FileChannel fullSegment = segment;
+            synchronized(lock){
+                openSegment(group.get(0).getSequence());
+            }
+            try{
+                fullSegment.close();
+            }
+            catch(IOException e){
+                //nothing to do, every group stored in it was already forced to disk
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for(HubWrite entry: group){
+            bytes.write(entry.toEntry());
+        }
+        ByteBuffer out = ByteBuffer.wrap(bytes.toByteArray());
+        long start = segment.size();
+        try{
+            while(out.hasRemaining()){
+                segment.write(out);
+            }
+            segment.force(false);
+        }
+        catch(IOException e){
+            try{
+                segment.truncate(start);   //so the next group does not follow a partly written one
+            }
+            catch(IOException truncateError){
+                //the segment has to end with the partly written group (which recoverSegments drops), so no other group may follow it
+                try{
+                    segment.close();
+                }
+                catch(IOException closeError){
+                    //nothing to do, the segment is not used again
+                }
+                segment = null;
+            }
+            throw e;
+        }
+    }
+
+
+
+    //the database flusher thread's loop (only used with segment files)
+    private void flushToDatabase(){
+        while(true){
+            List<HubWrite> batch = new ArrayList<>();
+            synchronized(lock){
+                while(unflushed.isEmpty() && !(closed && !committer.isAlive())){
+                    try{
+                        lock.wait(RETRY_DELAY);
+                    }
+                    catch(InterruptedException e){
+                        return;
+                    }
+                }
+                if(unflushed.isEmpty()){   //closed, and every stored entry is in the database
+                    return;
+                }
+                Iterator<HubWrite> it = unflushed.iterator();
+                while(it.hasNext() && batch.size()<MAX_BATCH_SIZE){
+                    batch.add(it.next());
+                }
+            }
+            long batchSequence = batch.get(batch.size()-1).getSequence();
+            try{
+                db.applyHubWrites(batch, checkpointId, batchSequence);
+            }
+            catch(SQLException e){
+                synchronized(lock){
+                    lastError = e;
+                    lock.notifyAll();
+                    if(HubWriteBehind.isPermanent(e)){   //the entries stay in the segment files
+                        fatalError = e;
+                        return;
+                    }
+                    if(closed){   //give up, the entries stay in the segment files
+                        return;
+                    }
+                    try{
+                        lock.wait(RETRY_DELAY);
+                    }
+                    catch(InterruptedException interrupted){
+                        return;
+                    }
+                }
+                continue;
+            }
+            synchronized(lock){
+                for(int i=0; i<batch.size(); i++){
+                    unflushed.poll();
+                }
+                flushedSequence = batchSequence;
+                lastError = null;
+                while(segments.size()>1 && segmentLastSequences.peek()<=flushedSequence){   //delete the full segments the database now has
+                    try{
+                        Files.deleteIfExists(segments.peek());
+                    }
+                    catch(IOException e){
+                        break;   //try again after the next batch
+                    }
+                    segments.poll();
+                    segmentLastSequences.poll();
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//this class is used by RepairPlanGrid's findBestRepairPath to go through the possible repair paths between startHub and endHub one at a time,
+//instead of building a list of every path combination up front. It produces the same paths, in the same order, as going through every
+//subset of the intermediate hubs (in power-set order) and every permutation of each subset, but skips the ones that cannot be the best path:
+//  - a path is built one hub at a time, and as soon as the partial path stops being x or y monotonic or crosses the diagonal a second time,
+//    none of the paths starting with it are generated (adding hubs to an invalid path can never make it valid again)
+//  - every permutation of a subset has the same total impact, so whole subsets whose total impact is below the best path found so far
+//    (see setBestImpact) are skipped
+//Only the current subset and partial path are stored, so memory stays proportional to the number of intermediate hubs.
+//A generator can also be limited to a range of subsets, so that RepairPathSearch can split the path combinations between several threads
+//(in which case the generators share the best impact found by any of them)
+public class RepairPathGenerator implements Iterator<List<HubImpact>> {
+
+    private List<HubImpact> intermediateHubs;   //the intermediate hubs between startHub and endHub
+    private int[] gridX;   //grid coordinates of each intermediate hub (same indexes as intermediateHubs)
+    private int[] gridY;
+    private int[] sides;   //whether each intermediate hub is below, on, or above the diagonal (-1=below, 0=on, 1=above)
+    private long subsetMask;   //the current subset, as a bitmask (the first intermediate hub is the most significant bit, as in the power-set order)
+    private long lastSubsetMask;   //the bitmask of the last subset to go through
+    private AtomicInteger bestImpact;   //impact of the best path found so far by the caller(s), stored as float bits (paths that cannot reach it are skipped)
+
+    //state of the partial path within the current subset (position i stores the state after the i-th hub of the path)
+    private int[] path;   //indexes of the current subset's hubs, swapped in place to form the current path
+    private int pathSize;   //number of hubs in the current subset
+    private int depth;   //position in the path currently being filled in (-1 once every permutation of the subset has been generated)
+    private int[] choices;   //for each position, the index (in path) of the hub currently swapped into that position
+    private boolean[] xMonotonic;
+    private boolean[] yMonotonic;
+    private int[] previousSides;   //the side of the diagonal of the last hub that was not on the diagonal
+    private int[] crossedDiagonal;   //number of times the path has crossed the diagonal
+    private boolean pathReady;   //whether a generated path is waiting to be returned by next()
+
+
+    RepairPathGenerator(List<HubImpact> intermediateHubs, int[] gridX, int[] gridY, int[] sides){
+        this(intermediateHubs, gridX, gridY, sides, 1, (1L << intermediateHubs.size()) - 1, new AtomicInteger(Float.floatToIntBits(-1)));
+    }
+
+
+    //constructor for a generator that only goes through the subsets from firstSubsetMask to lastSubsetMask (inclusive), and shares its best
+    //impact with other generators
+    RepairPathGenerator(List<HubImpact> intermediateHubs, int[] gridX, int[] gridY, int[] sides, long firstSubsetMask, long lastSubsetMask, AtomicInteger bestImpact){
+        if(intermediateHubs.size()>=Long.SIZE-1){
+            throw new IllegalArgumentException("Too many intermediate hubs to go through every path combination!\nSource: RepairPathGenerator");
+        }
+        this.intermediateHubs = intermediateHubs;
+        this.gridX = gridX;
+        this.gridY = gridY;
+        this.sides = sides;
+        int size = intermediateHubs.size();
+        subsetMask = firstSubsetMask-1;
+        this.lastSubsetMask = lastSubsetMask;
+        this.bestImpact = bestImpact;
+        path = new int[size];
+        pathSize = 0;
+        depth = -1;
+        choices = new int[size];
+        xMonotonic = new boolean[size];
+        yMonotonic = new boolean[size];
+        previousSides = new int[size];
+        crossedDiagonal = new int[size];
+        pathReady = false;
+    }
+
+
+
+    //method used by findBestRepairPath to report the impact of the best path it has found so far, so that subsets which cannot beat it are skipped.
+    //The shared best impact is only ever raised (another generator may have found a better path in the meantime)
+    void setBestImpact(float impact){
+        while(true){
+            int currentBits = bestImpact.get();
+            if(Float.intBitsToFloat(currentBits)>=impact){
+                return;
+            }
+            if(bestImpact.compareAndSet(currentBits, Float.floatToIntBits(impact))){
+                return;
+            }
+        }
+    }
+
+
+
+    public boolean hasNext(){
+        if(pathReady){
+            return true;
+        }
+        while(true){
+            if(depth>=0 && nextPermutation()){
+                pathReady = true;
+                return true;
+            }
+            if(!nextSubset()){
+                return false;
+            }
+        }
+    }
+
+
+
+    //returns the next path. Note that the returned list is a view of the generator's current path, so it is only valid until the next call
+    //to hasNext() or next() (findBestRepairPath copies the paths it keeps)
+    public List<HubImpact> next(){
+        if(!hasNext()){
+            throw new NoSuchElementException();
+        }
+        pathReady = false;
+        return new AbstractList<HubImpact>(){
+            public HubImpact get(int i){
+                if(i<0 || i>=pathSize){
+                    throw new IndexOutOfBoundsException();
+                }
+                return intermediateHubs.get(path[i]);
+            }
+
+            public int size(){
+                return pathSize;
+            }
+        };
+    }
+
+
+
+    //method to move on to the next subset (in power-set order) whose total impact can still match the best path found so far.
+    //Returns false once every subset has been gone through
+    private boolean nextSubset(){
+        while(subsetMask<lastSubsetMask){
+            subsetMask++;
+            pathSize = 0;
+            double subsetImpact = 0;
+            for(int i=0; i<intermediateHubs.size(); i++){
+                if((subsetMask & (1L << (intermediateHubs.size()-1-i)))!=0){
+                    path[pathSize++] = i;
+                    subsetImpact += intermediateHubs.get(i).getImpact();
+                }
+            }
+            //every permutation of this subset adds up to the subset's total impact (give or take float rounding, which depends on the order
+            //the impacts are added in, so the bound is loosened by the largest possible rounding error before comparing)
+            if(subsetImpact*(1 + pathSize*Math.ulp(1f)) < Float.intBitsToFloat(bestImpact.get())){
+                continue;
+            }
+            depth = 0;
+            choices[0] = -1;
+            return true;
+        }
+        return false;
+    }
+
+
+
+    //method to generate the next valid permutation of the current subset. It follows the order of a recursive swap-based permutation (the
+    //hub at each position is swapped with every hub after it, in turn), but does not go any deeper than a position whose partial path is invalid.
+    //Returns false once every permutation of the current subset has been gone through
+    private boolean nextPermutation(){
+        while(depth>=0){
+            if(choices[depth]>=depth){   //undo the swap of the hub that was at this position
+                swap(depth, choices[depth]);
+                choices[depth]++;
+            }
+            else{
+                choices[depth] = depth;
+            }
+            if(choices[depth]>=pathSize){   //every hub has been tried at this position, so go back one position
+                choices[depth] = -1;
+                depth--;
+                continue;
+            }
+            swap(depth, choices[depth]);
+            if(!extendPath(depth)){   //the path is invalid up to this position, so skip every path that starts with it
+                continue;
+            }
+            if(depth==pathSize-1){   //the path is complete
+                return true;
+            }
+            depth++;
+            choices[depth] = -1;
+        }
+        return false;
+    }
+
+
+
+    //method to calculate whether the partial path is still valid after adding the hub at a position (i.e., it is x or y monotonic and has crossed
+    //the diagonal no more than once). These are the same checks that findBestRepairPath used to run on every complete path
+    private boolean extendPath(int position){
+        int hub = path[position];
+        if(position==0){   //this is the first hub after startHub (we don't need to check whether monotonic)
+            xMonotonic[0] = true;
+            yMonotonic[0] = true;
+            previousSides[0] = sides[hub];
+            crossedDiagonal[0] = 0;
+            return true;
+        }
+        int previousHub = path[position-1];
+        xMonotonic[position] = xMonotonic[position-1] && gridX[hub]>=gridX[previousHub];
+        yMonotonic[position] = yMonotonic[position-1] && gridY[hub]>=gridY[previousHub];
+        previousSides[position] = previousSides[position-1];
+        crossedDiagonal[position] = crossedDiagonal[position-1];
+        if(sides[hub]!=0){
+            if(previousSides[position]==-sides[hub]){   //the hub before this hub was on the other side of the diagonal
+                crossedDiagonal[position]++;   //thus, the path has crossed the diagonal
+            }
+            previousSides[position] = sides[hub];
+        }
+        return crossedDiagonal[position]<=1 && (xMonotonic[position] || yMonotonic[position]);
+    }
+
+
+
+    private void swap(int a, int b){
+        int hub = path[a];
+        path[a] = path[b];
+        path[b] = hub;
+    }
+}
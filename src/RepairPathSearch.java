@@ -0,0 +1,54 @@
+import java.util.*;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//this class is used by RepairPlanGrid's findBestRepairPathInParallel to search the path combinations of a repair plan on several threads.
+//The subsets of the intermediate hubs are numbered in power-set order, and each task searches a range of them: ranges with more than
+//SUBSETS_PER_TASK subsets are split in half (i.e., by the first hubs that the subsets contain or leave out), and the halves are searched in
+//parallel. Every task's generator shares the same best impact, so they all skip the subsets that cannot beat the best path found by any task.
+//When the halves are combined, the path with the higher impact wins and, on a tie, the path from the later half wins, which is the same path
+//that findBestRepairPath would return from searching every subset in order on a single thread
+public class RepairPathSearch extends RecursiveTask<List<HubImpact>> {
+
+    private static final long SUBSETS_PER_TASK = 256;   //ranges of up to this many subsets are searched by a single task without splitting
+    private static final long serialVersionUID = 1L;   //RecursiveTask is Serializable (tasks are never actually serialized)
+
+    private RepairPlanGrid repairPlanGrid;
+    private long firstSubsetMask;   //the first subset of this task's range (as a bitmask, see RepairPathGenerator)
+    private long lastSubsetMask;   //the last subset of this task's range (inclusive)
+    private AtomicInteger bestImpact;   //the best impact found by any task so far (stored as float bits)
+
+
+    RepairPathSearch(RepairPlanGrid repairPlanGrid, long firstSubsetMask, long lastSubsetMask, AtomicInteger bestImpact){
+        this.repairPlanGrid = repairPlanGrid;
+        this.firstSubsetMask = firstSubsetMask;
+        this.lastSubsetMask = lastSubsetMask;
+        this.bestImpact = bestImpact;
+    }
+
+
+
+    //returns the best path of this task's range (null if every subset of the range was skipped)
+    protected List<HubImpact> compute(){
+        if(lastSubsetMask-firstSubsetMask<SUBSETS_PER_TASK){
+            return repairPlanGrid.findBestRepairPath(repairPlanGrid.generateValidPaths(firstSubsetMask, lastSubsetMask, bestImpact));
+        }
+        long middleSubsetMask = firstSubsetMask + (lastSubsetMask-firstSubsetMask)/2;
+        RepairPathSearch firstHalf = new RepairPathSearch(repairPlanGrid, firstSubsetMask, middleSubsetMask, bestImpact);
+        RepairPathSearch secondHalf = new RepairPathSearch(repairPlanGrid, middleSubsetMask+1, lastSubsetMask, bestImpact);
+        firstHalf.fork();
+        List<HubImpact> secondPath = secondHalf.compute();
+        List<HubImpact> firstPath = firstHalf.join();
+        if(firstPath==null){
+            return secondPath;
+        }
+        if(secondPath==null){
+            return firstPath;
+        }
+        //the later half wins ties, just like findBestRepairPath keeps the last of several equally impactful paths
+        if(RepairPlanGrid.calculatePathImpact(secondPath)>=RepairPlanGrid.calculatePathImpact(firstPath)){
+            return secondPath;
+        }
+        return firstPath;
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.*;
+
+//this class is used by PowerService to remember the results of recent repairPlan calls, so that the same query (startHub, maxDistance,
+//maxTime) does not have to be recalculated every time it is asked for. It holds up to <capacity> plans and, once full, evicts the plan that
+//was used the longest time ago (least recently used).
+//A plan only depends on the downed hubs within <maxDistance> of its starting hub (their locations, repair times and impacts), so when a
+//hub is damaged, repaired, or has its impact changed, PowerService reports it through invalidate(), which only drops the plans whose
+//search region (the circle of radius maxDistance around the starting hub) contains that hub
+public class RepairPlanCache {
+
+    private int capacity;   //maximum number of plans stored
+    private LinkedHashMap<String, CachedPlan> plans;   //map to store each query (see createKey) and its plan, in order of last use
+
+
+    RepairPlanCache(int capacity){
+        this.capacity = capacity;
+        //an access-ordered LinkedHashMap moves an entry to the end whenever it is used, so its first entry is always the least recently used one
+        plans = new LinkedHashMap<String, CachedPlan>(16, 0.75f, true){
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest){
+                return size()>RepairPlanCache.this.capacity;
+            }
+        };
+    }
+
+
+
+    //returns a copy of the cached plan for a query (null if the query has not been cached or its plan was invalidated)
+    synchronized List<HubImpact> get(HubImpact startHub, int maxDistance, float maxTime){
+        CachedPlan cachedPlan = plans.get(createKey(startHub, maxDistance, maxTime));
+        if(cachedPlan==null){
+            return null;
+        }
+        return new ArrayList<>(cachedPlan.plan);
+    }
+
+
+
+    //method to store (a copy of) the plan calculated for a query
+    synchronized void put(HubImpact startHub, int maxDistance, float maxTime, List<HubImpact> plan){
+        plans.put(createKey(startHub, maxDistance, maxTime), new CachedPlan(startHub.getX(), startHub.getY(), maxDistance, new ArrayList<>(plan)));
+    }
+
+
+
+    //method to drop every cached plan whose search region contains at least one of the affected hubs (hubs that were damaged, repaired,
+    //added, or whose impacts were recalculated). Plans of far away regions are kept
+    synchronized void invalidate(Collection<HubImpact> affectedHubs){
+        if(affectedHubs.isEmpty()){
+            return;
+        }
+        Iterator<CachedPlan> itr = plans.values().iterator();
+        while(itr.hasNext()){
+            CachedPlan cachedPlan = itr.next();
+            for(HubImpact hub: affectedHubs){
+                if(HubSpatialIndex.distance(cachedPlan.startX, cachedPlan.startY, hub.getX(), hub.getY())<=(double) cachedPlan.maxDistance){
+                    itr.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+
+
+    synchronized int size(){
+        return plans.size();
+    }
+
+
+
+    //method to create the key of a query (maxTime is stored by its exact bits, so that only identical queries share a plan)
+    private static String createKey(HubImpact startHub, int maxDistance, float maxTime){
+        return startHub.getHubId() + "|" + maxDistance + "|" + Float.floatToIntBits(maxTime);
+    }
+
+
+
+    //this class stores a cached plan along with the search region it was calculated from
+    private static class CachedPlan {
+        private int startX;   //location of the plan's starting hub
+        private int startY;
+        private int maxDistance;
+        private List<HubImpact> plan;
+
+        CachedPlan(int startX, int startY, int maxDistance, List<HubImpact> plan){
+            this.startX = startX;
+            this.startY = startY;
+            this.maxDistance = maxDistance;
+            this.plan = plan;
+        }
+    }
+}
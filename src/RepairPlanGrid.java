@@ -1,119 +1,375 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
-//this class is used during PowerService's repairPlan method. It stores the hubs in range onto a 2d array which represents a locational grid,
-//and also calculates the best possible valid path between the startHub and endHub that repairs the most impactful set of intermediate hubs
+//this class is used during PowerService's repairPlan method. It places the hubs in range onto a locational grid (relative to startHub),
+//and also calculates the best possible valid path between the startHub and endHub that repairs the most impactful set of intermediate hubs.
+//The grid is sparse: rather than allocating a cell for every coordinate of the rectangle between startHub and endHub (which can be millions of
+//cells for hubs that are far apart), only the grid coordinates of the hubs themselves are stored, so memory scales with the number of hubs
 public class RepairPlanGrid {
 
-    private String[][] repairPlanGrid;   //2d array to represent a locational grid
-    Map<String, int[]> hubRepairGridCoordinates;   //a map to store each hub in range and their coordinates relative to the grid (i.e., not their Point location values, but rather their coordinates relative to the starting hub on the grid)
+    private HubImpact startHub;
+    private HubImpact endHub;
+    private List<HubImpact> intermediateHubs;   //the hubs that reside between startHub and endHub
+    //grid coordinates of each intermediate hub (same indexes as intermediateHubs). These are not their Point location values, but rather their
+    //coordinates relative to startHub, which is placed at 0,0 on the grid
+    private int[] gridX;
+    private int[] gridY;
+    private int endGridX;   //endHub's grid coordinates (these are also the width and height of the rectangle between startHub and endHub)
+    private int endGridY;
+    private int[] sides;   //whether each intermediate hub is below, on, or above the diagonal (-1=below, 0=on, 1=above)
 
 
     RepairPlanGrid(HubImpact startHub, HubImpact endHub, List<HubImpact> intermediateHubs){
-        repairPlanGrid = setHubsToGrid(startHub, endHub, intermediateHubs);   //set up and populate the location grid according to the hubs in range
+        this.startHub = startHub;
+        this.endHub = endHub;
+        this.intermediateHubs = intermediateHubs;
+        setHubsToGrid();   //calculate the grid coordinates of the hubs in range
+        sides = findDiagonalSides();
     }
 
 
-    //method to set up and populate the locational grid and coordinates map. This method is invoked during the constructor
-    private String[][] setHubsToGrid(HubImpact startHub, HubImpact endHub, List<HubImpact> intermediateHubs){
-        hubRepairGridCoordinates = new HashMap<>();
-        int startX = startHub.getLocation().getX();
-        int startY = startHub.getLocation().getY();
-        int endX = endHub.getLocation().getX();
-        int endY = endHub.getLocation().getY();
-        //calculate the endHub's grid coordinates (coordinates relative to startHub, where startHub is placed at [0][0] on the grid)
-        //these coordinates also represent the dimensions of the grid (i.e., the height and width of the rectangle that forms between startHub and endHub)
-        int maxXCoordinate = Math.abs(endX-startX);
-        int maxYCoordinate = Math.abs(endY-startY);
-        //create a grid using the dimensions calculated
-        String[][] repairPlanGrid = new String[maxXCoordinate+1][maxYCoordinate+1];
-        //add startHub and endHub onto the grid and store their grid coordinates in the coordinates map
-        repairPlanGrid[0][0] = startHub.getHubId();
-        hubRepairGridCoordinates.put(startHub.getHubId(), new int[] {0,0});
-        repairPlanGrid[maxXCoordinate][maxYCoordinate] = endHub.getHubId();
-        hubRepairGridCoordinates.put(endHub.getHubId(), new int[] {maxXCoordinate,maxYCoordinate});
+    //method to calculate the grid coordinates of the hubs. This method is invoked during the constructor
+    private void setHubsToGrid(){
+        int startX = startHub.getX();
+        int startY = startHub.getY();
+        //calculate the endHub's grid coordinates (coordinates relative to startHub, where startHub is placed at 0,0 on the grid)
+        endGridX = Math.abs(endHub.getX()-startX);
+        endGridY = Math.abs(endHub.getY()-startY);
+        gridX = new int[intermediateHubs.size()];
+        gridY = new int[intermediateHubs.size()];
         for(int i=0; i<intermediateHubs.size(); i++){   //iterate through the hubs between startHub and endHub
-            int intermediateX = intermediateHubs.get(i).getLocation().getX();
-            int intermediateY = intermediateHubs.get(i).getLocation().getY();
-            //set this intermediate hub onto the grid (relative to startHub) and add its coordinates to the map
-            repairPlanGrid[Math.abs(intermediateX-startX)][Math.abs(intermediateY-startY)] = intermediateHubs.get(i).getHubId();
-            hubRepairGridCoordinates.put(intermediateHubs.get(i).getHubId(), new int[]{Math.abs(intermediateX-startX), Math.abs(intermediateY-startY)});
+            gridX[i] = Math.abs(intermediateHubs.get(i).getX()-startX);
+            gridY[i] = Math.abs(intermediateHubs.get(i).getY()-startY);
         }
-        return repairPlanGrid;
     }
 
 
 
-    //this method identifies the best possible path between startHub, intermediate hubs, and endHub. It is supplied with all possible path combinations as its argument.
-    //For each of those path combinations, it checks whether it is valid (i.e., either x or y monotonic and crosses diagonal no more than once).
-    //Then returns the valid path combination that has the highest total impact
-    //For example, if startHub is "A1" and endHub is "D4" with possible intermediate hubs "B2" and "C3", then all possible path combinations excluding the startHub
-    //are [D4], [B2, D4], [C3, D4], [B2, C3, D4], and [C3, B2, D4]. So, these combinations are supplied to this method as arguments. Then, this method checks
-    //which of these paths is valid. Then, of those valid paths, it returns the one with the highest overall impact
-    List<HubImpact> findBestRepairPath(List<List<HubImpact>> allPathCombinations, HubImpact endHub){
-        //calculate the slope diagonal line of the rectangle between startHub and endHub using the formula m = (y2-y1)/(x2-x1)
-        double diagonalSlope = (double) hubRepairGridCoordinates.get(endHub.getHubId())[1] / (double) hubRepairGridCoordinates.get(endHub.getHubId())[0];
+    //this method identifies the best possible path between startHub, intermediate hubs, and endHub. It is supplied with a generator of the valid path
+    //combinations (i.e., either x or y monotonic and crosses diagonal no more than once) as its argument, and returns the one with the highest total impact.
+    //For example, if startHub is "A1" and endHub is "D4" with possible intermediate hubs "B2" and "C3", then the possible path combinations between them
+    //(excluding startHub and endHub) are [B2], [C3], [B2, C3], and [C3, B2]. The generator only produces the ones that are valid, and skips the
+    //ones that cannot beat the best path found so far (which this method reports back to it). If several paths tie, the last one generated is returned
+    List<HubImpact> findBestRepairPath(RepairPathGenerator validPaths){
         List<HubImpact> bestPath = null;   //variable to store the best path (i.e., path with highest impact)
         float bestImpact = -1;  //variable to store the best path's impact value
-        for(List<HubImpact> potentialPath: allPathCombinations){   //iterate through the list of all possible path combinations
-            boolean xMonotonic = true;
-            boolean yMonotonic = true;
-            int previousBelowDiagonal = 0;   //variable to track whether the last point was below, on, or above the diagonal (-1=below, 0=on, 1=above)
-            int crossedDiagonal = 0;   //variable to keep track of how many times this path cross the diagonal
-            int[] currCoordinates = new int[] {0, 0};  //starting coordinates (i.e., startHub)
-            for(HubImpact nextHub: potentialPath){   //iterate through each hub on this path
-                int[] nextCoordinates = hubRepairGridCoordinates.get(nextHub.getHubId());
-                double nextCoordinatePointSlope = diagonalSlope * (double)nextCoordinates[0];   //multiply this hub's x coordinate with the slope of the diagonal line (m) to get the y coordinate of the diagonal line at this hub's x coordinate (i.e., what are this hub's x,y if it were on the diagonal line)
-                if(currCoordinates[0]==0 && currCoordinates[1]==0){   //this is the first hub after startHub (we don't need to check whether monotonic)
-                    if((double)nextCoordinates[1]<nextCoordinatePointSlope){   //this hub is under the diagonal
-                        previousBelowDiagonal = -1;
-                    }
-                    else if((double)nextCoordinates[1]>nextCoordinatePointSlope){   //this hub is below the diagonal
-                        previousBelowDiagonal = 1;
-                    }
-                    currCoordinates = nextCoordinates;
+        while(validPaths.hasNext()){   //iterate through the valid path combinations
+            List<HubImpact> potentialPath = validPaths.next();
+            float potentialPathImpact = calculatePathImpact(potentialPath);
+            if(potentialPathImpact>=bestImpact){   //store (a copy of) this path if it is the best path so far
+                bestImpact = potentialPathImpact;
+                bestPath = new ArrayList<>(potentialPath);
+                validPaths.setBestImpact(bestImpact);
+            }
+        }
+        return bestPath;
+    }
+
+
+
+    //this method finds the same best path as findBestRepairPath, but splits the path combinations into ranges of subsets that are searched by
+    //the threads of the common fork/join pool (see RepairPathSearch). The threads share the best impact found so far, so a path found by one
+    //thread lets the others skip the subsets that cannot beat it
+    List<HubImpact> findBestRepairPathInParallel(){
+        AtomicInteger bestImpact = new AtomicInteger(Float.floatToIntBits(-1));
+        return ForkJoinPool.commonPool().invoke(new RepairPathSearch(this, 1, (1L << intermediateHubs.size()) - 1, bestImpact));
+    }
+
+
+
+    //returns a generator of the valid path combinations through the intermediate hubs (see RepairPathGenerator), to be passed to findBestRepairPath
+    RepairPathGenerator generateValidPaths(){
+        return new RepairPathGenerator(intermediateHubs, gridX, gridY, sides);
+    }
+
+
+
+    //returns a generator of the valid path combinations whose subsets are between firstSubsetMask and lastSubsetMask (used by RepairPathSearch)
+    RepairPathGenerator generateValidPaths(long firstSubsetMask, long lastSubsetMask, AtomicInteger bestImpact){
+        return new RepairPathGenerator(intermediateHubs, gridX, gridY, sides, firstSubsetMask, lastSubsetMask, bestImpact);
+    }
+
+
+
+    //method to calculate a path's total impact (the impacts are added in the order of the path)
+    static float calculatePathImpact(List<HubImpact> path){
+        float pathImpact = 0;
+        for(HubImpact hub: path){
+            pathImpact += hub.getImpact();
+        }
+        return pathImpact;
+    }
+
+
+
+    //this method finds the most impactful valid path through the intermediate hubs without going through every path combination, which is
+    //what repairPlan uses once there are too many intermediate hubs to enumerate. It relies on the following property of valid paths:
+    //a path visits its hubs in increasing x (or y) order, and since it crosses the diagonal at most once, every hub it visits below the diagonal
+    //comes before every hub it visits above the diagonal (or the other way around). In other words, for some threshold t along the x (or y) axis,
+    //the path can only visit the hubs on its first side of the diagonal up to t, and the hubs on its other side from t onwards (hubs that lie on
+    //the diagonal can be visited anywhere). Every impact is positive (or 0), so the best path for a given threshold simply visits all of those hubs.
+    //So, this method tries every threshold for both axes and both crossing directions (4 sweeps over the sorted hubs), which takes O(n log n) time.
+    //It returns the same path as findBestRepairPath would: when several thresholds tie on impact, it keeps the set of hubs that comes last in the
+    //enumeration's power-set order (see isLaterSubset), and it visits them in the order of the last valid permutation (see orderLikeEnumeration)
+    List<HubImpact> solveBestRepairPath(){
+        //try both axes (0=x monotonic, 1=y monotonic) and both crossing directions (starting below or above the diagonal), keeping the best
+        double bestImpact = -1;
+        boolean[] bestSubset = null;
+        for(int axis=0; axis<2; axis++){
+            for(int firstSide=-1; firstSide<=1; firstSide+=2){
+                int[] axisCoordinates = axis==0 ? gridX : gridY;
+                double[] candidate = findBestThreshold(axisCoordinates, firstSide);
+                if(candidate[0]<bestImpact){
                     continue;
                 }
-                if(nextCoordinates[0]<currCoordinates[0]){   //path is moving back horizontally (no longer x monotonic)
-                    xMonotonic = false;
+                //the hubs visited at this threshold (the first side's hubs up to it, the other side's hubs from it onwards, and the diagonal's hubs)
+                boolean[] subset = new boolean[intermediateHubs.size()];
+                for(int i=0; i<subset.length; i++){
+                    subset[i] = sides[i]==0 || (sides[i]==firstSide && axisCoordinates[i]<=candidate[1]) || (sides[i]==-firstSide && axisCoordinates[i]>=candidate[1]);
                 }
-                if(nextCoordinates[1]<currCoordinates[1]){   //path is moving down vertically (no longer y monotonic)
-                    yMonotonic = false;
+                if(candidate[0]>bestImpact || isLaterSubset(subset, bestSubset)){
+                    bestImpact = candidate[0];
+                    bestSubset = subset;
                 }
-                if((double)nextCoordinates[1]<nextCoordinatePointSlope){   //this hub is below the diagonal
-                    if(previousBelowDiagonal==1){   //the hub before this hub was above the diagonal
-                        crossedDiagonal++;   //thus, the path has crossed the diagonal
-                    }
-                    previousBelowDiagonal = -1;
+            }
+        }
+        return orderLikeEnumeration(bestSubset);
+    }
+
+
+
+    //method used during solveBestRepairPath to find the best threshold for one axis and crossing direction. The hubs are swept in increasing
+    //order along the axis: the impact of the first side's hubs up to the threshold grows, while the impact of the other side's hubs from the
+    //threshold onwards shrinks. Returns the best total impact (including the hubs on the diagonal) and its threshold, where a threshold of
+    //negative infinity means that the path does not visit any hub on the first side. When two thresholds tie, the later one visits the first
+    //side's hubs between them and the earlier one visits the other side's hubs between them, so the one with the lowest index among those
+    //hubs wins (i.e., the one that comes last in power-set order, see isLaterSubset)
+    private double[] findBestThreshold(int[] axisCoordinates, int firstSide){
+        long[] order = new long[intermediateHubs.size()];   //each hub's coordinate along the axis (upper 32 bits) and index (lower 32 bits)
+        double diagonalImpact = 0;   //impact of the hubs on the diagonal (always visited)
+        double otherSideImpact = 0;   //impact of the other side's hubs at or after the current threshold
+        for(int i=0; i<order.length; i++){
+            order[i] = ((long) axisCoordinates[i] << 32) | i;
+            if(sides[i]==0){
+                diagonalImpact += intermediateHubs.get(i).getImpact();
+            }
+            else if(sides[i]==-firstSide){
+                otherSideImpact += intermediateHubs.get(i).getImpact();
+            }
+        }
+        Arrays.sort(order);
+        double bestImpact = diagonalImpact + otherSideImpact;   //threshold at negative infinity (every hub on the other side is visited)
+        double bestThreshold = Double.NEGATIVE_INFINITY;
+        double firstSideImpact = 0;   //impact of the first side's hubs at or before the current threshold
+        int firstSideSinceBest = Integer.MAX_VALUE;   //lowest index of the first side's hubs after the best threshold, up to the current one
+        int otherSideSinceBest = Integer.MAX_VALUE;   //lowest index of the other side's hubs from the best threshold, up to before the current one
+        int i = 0;
+        while(i<order.length){
+            //move the threshold to the next coordinate, and go through every hub at that coordinate
+            int threshold = (int) (order[i] >>> 32);
+            double otherSideAtThreshold = 0;   //impact of the other side's hubs at this exact coordinate (still visited at this threshold)
+            int otherSideIndexAtThreshold = Integer.MAX_VALUE;   //lowest index of the other side's hubs at this exact coordinate
+            while(i<order.length && (int) (order[i] >>> 32)==threshold){
+                int hub = (int) order[i];
+                if(sides[hub]==firstSide){
+                    firstSideImpact += intermediateHubs.get(hub).getImpact();
+                    firstSideSinceBest = Math.min(firstSideSinceBest, hub);
+                }
+                else if(sides[hub]==-firstSide){
+                    otherSideAtThreshold += intermediateHubs.get(hub).getImpact();
+                    otherSideIndexAtThreshold = Math.min(otherSideIndexAtThreshold, hub);
                 }
-                else if((double)nextCoordinates[1]>nextCoordinatePointSlope){   //this hub is above the diagonal
-                    if(previousBelowDiagonal==-1){   //the hub before this hub was below the diagonal
-                        crossedDiagonal++;   //thus, the path has crossed the diagonal
+                i++;
+            }
+            double impact = diagonalImpact + firstSideImpact + otherSideImpact;
+            if(impact>bestImpact || (impact==bestImpact && firstSideSinceBest<otherSideSinceBest)){
+                bestImpact = impact;
+                bestThreshold = threshold;
+                firstSideSinceBest = Integer.MAX_VALUE;
+                otherSideSinceBest = otherSideIndexAtThreshold;
+            }
+            else{
+                otherSideSinceBest = Math.min(otherSideSinceBest, otherSideIndexAtThreshold);
+            }
+            otherSideImpact -= otherSideAtThreshold;   //past this coordinate, the other side's hubs at it can no longer be visited
+        }
+        return new double[] {bestImpact, bestThreshold};
+    }
+
+
+
+    //method to check whether a set of intermediate hubs comes after another in the enumeration's power-set order (where the first intermediate
+    //hub is the most significant bit), i.e., whether the first hub that is only in one of the two sets is in this one
+    private static boolean isLaterSubset(boolean[] subset, boolean[] otherSubset){
+        for(int i=0; i<subset.length; i++){
+            if(subset[i]!=otherSubset[i]){
+                return subset[i];
+            }
+        }
+        return false;
+    }
+
+
+
+    //method used during solveBestRepairPath to put the hubs of the best subset in the order findBestRepairPath would return them, which is the
+    //last valid permutation that RepairPathGenerator generates for the subset. The generator fills each position of the path by swapping in
+    //the hubs after it one at a time, so the last valid permutation takes, at each position, the hub furthest along the (swapped) path that still
+    //leaves a valid path for the remaining hubs. Along an axis, the next hub has to be one of the remaining hubs with the lowest coordinate, so
+    //only those are tried. The remaining hubs are kept sorted along both axes (all of them, and each side of the diagonal on its own), so the
+    //lowest and highest coordinates are found by moving bounds inwards past the hubs already on the path
+    private List<HubImpact> orderLikeEnumeration(boolean[] subset){
+        int[] path = new int[intermediateHubs.size()];   //indexes of the subset's hubs, swapped in place as in RepairPathGenerator
+        int[] pathPositions = new int[intermediateHubs.size()];   //position of each hub in path
+        int pathSize = 0;
+        int[] remainingOnSide = new int[3];   //number of remaining hubs on each side of the diagonal (indexed by side+1)
+        for(int i=0; i<subset.length; i++){
+            if(subset[i]){
+                pathPositions[i] = pathSize;
+                path[pathSize++] = i;
+                remainingOnSide[sides[i]+1]++;
+            }
+        }
+        //the subset's hubs sorted along each axis (coordinate in the upper 32 bits, index in the lower 32 bits), as sortedHubs[axis][side+1],
+        //where the diagonal's entry holds every hub of the subset. bounds[axis][side+1] holds the first and last position that may be unused
+        long[][][] sortedHubs = new long[2][3][];
+        int[][][] bounds = new int[2][3][];
+        for(int axis=0; axis<2; axis++){
+            int[] axisCoordinates = axis==0 ? gridX : gridY;
+            for(int side=-1; side<=1; side++){
+                long[] keys = new long[side==0 ? pathSize : remainingOnSide[side+1]];
+                int size = 0;
+                for(int position=0; position<pathSize; position++){
+                    if(side==0 || sides[path[position]]==side){
+                        keys[size++] = ((long) axisCoordinates[path[position]] << 32) | path[position];
                     }
-                    previousBelowDiagonal = 1;
                 }
-                currCoordinates = nextCoordinates;
+                Arrays.sort(keys);
+                sortedHubs[axis][side+1] = keys;
+                bounds[axis][side+1] = new int[] {0, keys.length-1};
             }
-            if(crossedDiagonal<=1 && (xMonotonic||yMonotonic)){   //check if the path is valid
-                float potentialPathImpact = 0;
-                for(HubImpact hub: potentialPath){  //calculate its impact
-                    potentialPathImpact += hub.getImpact();
+        }
+        boolean[] used = new boolean[intermediateHubs.size()];   //whether each hub has been placed on the path
+        boolean[] monotonic = {true, true};   //whether the path so far is x monotonic [0] and y monotonic [1]
+        int lastHub = -1;
+        int previousSide = 0;   //the side of the diagonal of the last hub that was not on the diagonal
+        int crossedDiagonal = 0;
+        for(int depth=0; depth<pathSize; depth++){
+            int nextHub = -1;
+            for(int axis=0; axis<2; axis++){
+                if(!monotonic[axis]){
+                    continue;
+                }
+                int[] axisCoordinates = axis==0 ? gridX : gridY;
+                int lowest = lowestUnused(sortedHubs[axis][1], bounds[axis][1], used);
+                int[] lowestOnSide = {lowestUnused(sortedHubs[axis][0], bounds[axis][0], used), 0, lowestUnused(sortedHubs[axis][2], bounds[axis][2], used)};
+                int[] highestOnSide = {highestUnused(sortedHubs[axis][0], bounds[axis][0], used), 0, highestUnused(sortedHubs[axis][2], bounds[axis][2], used)};
+                if(lastHub!=-1 && lowest<axisCoordinates[lastHub]){   //a remaining hub lies behind the path along this axis
+                    continue;
+                }
+                //try each remaining hub at the lowest coordinate, keeping the one furthest along the path
+                long[] keys = sortedHubs[axis][1];
+                for(int k=bounds[axis][1][0]; k<keys.length && (int) (keys[k] >>> 32)==lowest; k++){
+                    int hub = (int) keys[k];
+                    if(used[hub] || (nextHub!=-1 && pathPositions[hub]<pathPositions[nextHub])){
+                        continue;
+                    }
+                    //the path's state once this hub is added to it (same as RepairPathGenerator's extendPath)
+                    int side = previousSide;
+                    int crossings = crossedDiagonal;
+                    if(sides[hub]!=0){
+                        if(previousSide==-sides[hub]){
+                            crossings++;
+                        }
+                        side = sides[hub];
+                    }
+                    int[] remaining = remainingOnSide.clone();
+                    remaining[sides[hub]+1]--;
+                    //the hubs after it can follow along this axis if every hub on the path's current side comes before every hub on the other side
+                    //(once the path has crossed, no hubs can be left on the other side). Until the path leaves the diagonal, either side can go first
+                    boolean canFinish;
+                    if(crossings>1){
+                        canFinish = false;
+                    }
+                    else if(crossings==1){
+                        canFinish = remaining[-side+1]==0;
+                    }
+                    else if(side!=0){
+                        canFinish = remaining[side+1]==0 || remaining[-side+1]==0 || highestOnSide[side+1]<=lowestOnSide[-side+1];
+                    }
+                    else{
+                        canFinish = remaining[0]==0 || remaining[2]==0 || highestOnSide[0]<=lowestOnSide[2] || highestOnSide[2]<=lowestOnSide[0];
+                    }
+                    if(canFinish){
+                        nextHub = hub;
+                    }
                 }
-                if(potentialPathImpact>=bestImpact){   //store this path if it is the best path so far
-                    bestImpact = potentialPathImpact;
-                    bestPath = potentialPath;
+            }
+            //swap the hub into this position, and update the path's state
+            int position = pathPositions[nextHub];
+            path[position] = path[depth];
+            pathPositions[path[position]] = position;
+            path[depth] = nextHub;
+            pathPositions[nextHub] = depth;
+            if(lastHub!=-1){
+                monotonic[0] = monotonic[0] && gridX[nextHub]>=gridX[lastHub];
+                monotonic[1] = monotonic[1] && gridY[nextHub]>=gridY[lastHub];
+            }
+            if(sides[nextHub]!=0){
+                if(previousSide==-sides[nextHub]){
+                    crossedDiagonal++;
                 }
+                previousSide = sides[nextHub];
             }
+            used[nextHub] = true;
+            remainingOnSide[sides[nextHub]+1]--;
+            lastHub = nextHub;
+        }
+        List<HubImpact> bestPath = new ArrayList<>(pathSize);
+        for(int i=0; i<pathSize; i++){
+            bestPath.add(intermediateHubs.get(path[i]));
         }
         return bestPath;
     }
 
 
-    String[][] getRepairPlanGrid(){
-        return repairPlanGrid;
+
+    //method used during orderLikeEnumeration to find the lowest coordinate of the unused hubs in a sorted array (Integer.MAX_VALUE if there are
+    //none). The array's bounds are moved inwards past the used hubs, which are never used again
+    private static int lowestUnused(long[] keys, int[] bounds, boolean[] used){
+        while(bounds[0]<=bounds[1] && used[(int) keys[bounds[0]]]){
+            bounds[0]++;
+        }
+        return bounds[0]<=bounds[1] ? (int) (keys[bounds[0]] >>> 32) : Integer.MAX_VALUE;
+    }
+
+
+
+    //same as above, for the highest coordinate (Integer.MIN_VALUE if there are none)
+    private static int highestUnused(long[] keys, int[] bounds, boolean[] used){
+        while(bounds[0]<=bounds[1] && used[(int) keys[bounds[1]]]){
+            bounds[1]--;
+        }
+        return bounds[0]<=bounds[1] ? (int) (keys[bounds[1]] >>> 32) : Integer.MIN_VALUE;
     }
 
 
-    Map<String, int[]> getHubRepairGridCoordinates(){
-        return hubRepairGridCoordinates;
+    //method to find whether each intermediate hub is below, on, or above the diagonal line between startHub and endHub (-1=below, 0=on, 1=above).
+    //This method is invoked during the constructor
+    private int[] findDiagonalSides(){
+        //calculate the slope diagonal line of the rectangle between startHub and endHub using the formula m = (y2-y1)/(x2-x1)
+        double diagonalSlope = (double) endGridY / (double) endGridX;
+        int[] sides = new int[intermediateHubs.size()];
+        for(int i=0; i<intermediateHubs.size(); i++){
+            //multiply this hub's x coordinate with the slope of the diagonal line (m) to get the y coordinate of the diagonal line at this hub's x coordinate
+            double pointSlope = diagonalSlope * (double) gridX[i];
+            if((double) gridY[i]<pointSlope){   //this hub is below the diagonal
+                sides[i] = -1;
+            }
+            else if((double) gridY[i]>pointSlope){   //this hub is above the diagonal
+                sides[i] = 1;
+            }
+        }
+        return sides;
     }
 }
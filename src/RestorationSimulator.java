@@ -0,0 +1,89 @@
+import java.util.*;
+
+//this class is used by PowerService's rateOfServiceRestoration to simulate the repair of the downed hubs in fix order (highest impact first).
+//Each repair is an event that brings the repair time elapsed and the share of the population in service up by that hub's repair time and
+//population effected. The events are replayed once, when the simulator is created, and the elapsed time and in-service share after each
+//event are stored. So, the restoration curve for any increment can then be read off those events in O(number of hubs + 1/increment) time,
+//without going back to the postal<->hub model (which lets rateOfServiceRestoration answer several increments from a single simulation)
+public class RestorationSimulator {
+
+    private int populationOutOfService;   //population out of service due to hub outages before any repair (rounded up)
+    private double initialInServiceShare;   //share of the serviced population that has power before any repair
+    private float[] repairTimesElapsed;   //total repair time elapsed after each repair event
+    private double[] inServiceShares;   //share of the serviced population that has power after each repair event
+
+
+    //the repairOrder argument holds the hubs to repair in order (hubs with an impact of 0 must already be removed), totalPopulation is the
+    //population serviced by at least one hub, and populationOutOfService is the part of it that is out of service due to hub outages
+    RestorationSimulator(List<HubImpact> repairOrder, int totalPopulation, int populationOutOfService){
+        this.populationOutOfService = populationOutOfService;
+        repairTimesElapsed = new float[repairOrder.size()];
+        inServiceShares = new double[repairOrder.size()];
+        if(repairOrder.isEmpty() || populationOutOfService==0){   //nothing to simulate (the curve is all 0s)
+            return;
+        }
+        initialInServiceShare = (((double) totalPopulation)- ((double) populationOutOfService)) / ((double) totalPopulation);
+        float repairTimeElapsed = 0;
+        double inServiceShare = initialInServiceShare;
+        for(int i=0; i<repairOrder.size(); i++){   //replay the repairs in order
+            repairTimeElapsed += repairOrder.get(i).getRepairTime();
+            inServiceShare += ((double) repairOrder.get(i).getPopulationEffected()) / ((double) totalPopulation);   //the new share of population in service after this hub is repaired
+            repairTimesElapsed[i] = repairTimeElapsed;
+            inServiceShares[i] = inServiceShare;
+        }
+    }
+
+
+
+    //returns the restoration curve for an increment: the (rounded up) repair time elapsed by the time each increment of the serviced population
+    //has power (i.e., for an increment of 0.1, the times at which 0%, 10%, 20% ... 100% of the population has power)
+    List<Integer> simulate(float increment){
+        List<Integer> rateOfRestoration = new ArrayList<>();
+        float listIncrement = 0;   //variable to store the current increment value
+        int listSize = 0;   //variable to store rateOfRestoration's correct size based on the value of the increment argument
+        while(listIncrement<=1){
+            rateOfRestoration.add(0);  //add 0 to represent 0 hours to the list
+            listSize++;
+            if(listIncrement==1){   //current increment has reach 100%, so stop adding 0s to the list
+                break;
+            }
+            listIncrement += increment;   //add "increment" value to the current increment variable
+            if(listIncrement>1){   //current increment goes passed 100%, so set it back to 100% (this happens in cases where increment is 0.6 for example)
+                listIncrement = 1;
+            }
+        }
+        if(repairTimesElapsed.length==0 || populationOutOfService==0){   //no hubs with an impact > 0 need repair, or no people are out of service due to a hub outage, so return the list of 0s
+            return rateOfRestoration;
+        }
+        rateOfRestoration.clear();
+        double alreadyHavePowerIncrements = Math.floor(initialInServiceShare/increment);   //calculate how many "increments" of the population already have power
+        float currIncrement = 0;   //variable to store the current increment we are operating on
+        for(int i=0; i<=alreadyHavePowerIncrements; i++){   //add 0s to the list to indicate how many "increments" of the population already have power before performing any repairs
+            rateOfRestoration.add(0);
+            currIncrement += increment;   //update current increment
+        }
+        if(currIncrement>1){   //reset current increment to 1 if it has gone over 1 (i.e., when increment is 0.6)
+            currIncrement = 1;
+        }
+        for(int i=0; i<repairTimesElapsed.length; i++){   //go through the repair events in order
+            while(inServiceShares[i]>=currIncrement){   //add elapsedRepairTime(s) to the list to indicate how many new "increments" of the population are in service after this repair
+                if(currIncrement==1){
+                    rateOfRestoration.add((int) Math.ceil(repairTimesElapsed[i]));
+                    currIncrement = -1;
+                    break;
+                }
+                rateOfRestoration.add((int) Math.ceil(repairTimesElapsed[i]));
+                if(currIncrement+increment>1){    //reset current increment to 1 if it has gone over 1 (i.e., when increment is 0.6)
+                    currIncrement = 1;
+                }
+                else{
+                    currIncrement += increment;
+                }
+            }
+        }
+        while(rateOfRestoration.size()<listSize){    //in case percentage of in service population is 0.9999999 but should be 1 (floating point calculation inaccuracy)
+            rateOfRestoration.add((int) Math.ceil(repairTimesElapsed[repairTimesElapsed.length-1]));
+        }
+        return rateOfRestoration;
+    }
+}
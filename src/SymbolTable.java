@@ -0,0 +1,53 @@
+import java.util.*;
+
+//this class maps identifiers (i.e., postal codes) to dense integer ids (0, 1, 2...) in the order they are first seen. PostalHubIndex
+//interns every postal code once, when it is loaded, added or serviced by a new hub, and from then on stores and looks up the model's relations
+//in arrays indexed by those ids (instead of maps keyed by the identifier strings). Ids are never reused or removed
+public class SymbolTable {
+
+    private Map<String, Integer> ids;   //map to store each identifier and its id
+    private List<String> symbols;   //the identifier of each id (position i stores the identifier of id i)
+
+
+    SymbolTable(){
+        ids = new HashMap<>();
+        symbols = new ArrayList<>();
+    }
+
+
+
+    //returns an identifier's id, assigning it the next id if it has not been seen before
+    int intern(String symbol){
+        Integer id = ids.get(symbol);
+        if(id==null){
+            id = symbols.size();
+            ids.put(symbol, id);
+            symbols.add(symbol);
+        }
+        return id;
+    }
+
+
+
+    //returns an identifier's id (-1 if it has not been interned)
+    int getId(String symbol){
+        Integer id = ids.get(symbol);
+        if(id==null){
+            return -1;
+        }
+        return id;
+    }
+
+
+
+    String getSymbol(int id){
+        return symbols.get(id);
+    }
+
+
+
+    //returns the number of interned identifiers (every id is below this number)
+    int size(){
+        return symbols.size();
+    }
+}
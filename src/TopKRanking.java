@@ -0,0 +1,105 @@
+import java.util.*;
+
+//this class is used by PowerService's reports (underservedPostalByPopulation and underservedPostalByArea) to rank items by a value
+//in descending order. The reports only return the top <limit> items, plus every item beyond the limit that ties in value with the item
+//at the limit. So, instead of sorting every item, this class keeps the <limit> highest items in a bounded min-heap (the lowest of them
+//sits on top of the heap, ready to be pushed out by a higher item), along with the items that tie with that lowest item.
+//Adding n items therefore costs O(n log k) rather than the O(n log n) of a full sort
+public class TopKRanking<T> {
+
+    private int limit;   //number of items to rank (items that tie with the item at the limit are also kept)
+    private PriorityQueue<RankedItem<T>> topItems;   //the <limit> highest items seen so far (lowest item at the head of the queue)
+    private List<RankedItem<T>> tiesAtLimit;   //items that did not fit in topItems but tie in value with its lowest item
+    private long insertions;   //number of items added so far (used to keep the order of tied items stable)
+
+
+    TopKRanking(int limit){
+        this.limit = limit;
+        //order the heap so that its head is the item that should be pushed out first: the lowest value and, among tied values, the item that was added last
+        topItems = new PriorityQueue<>(Math.max(1, limit), new Comparator<RankedItem<T>>(){
+            public int compare(RankedItem<T> a, RankedItem<T> b){
+                int byValue = Float.compare(a.value, b.value);
+                if(byValue!=0){
+                    return byValue;
+                }
+                return Long.compare(b.order, a.order);
+            }
+        });
+        tiesAtLimit = new ArrayList<>();
+        insertions = 0;
+    }
+
+
+
+    //method to offer an item and its value to the ranking
+    void add(T item, float value){
+        RankedItem<T> rankedItem = new RankedItem<>(item, value, insertions++);
+        if(topItems.size()<limit){   //the ranking is not full yet, so just add the item
+            topItems.add(rankedItem);
+            return;
+        }
+        float lowestValue = topItems.peek().value;
+        if(value>lowestValue){   //the item is higher than the lowest item in the ranking, so it takes that item's place
+            RankedItem<T> pushedOut = topItems.poll();
+            topItems.add(rankedItem);
+            if(pushedOut.value==topItems.peek().value){   //the pushed out item still ties with the new lowest item, so keep it as a tie
+                tiesAtLimit.add(pushedOut);
+            }
+            else{   //the lowest value in the ranking went up, so none of the previous ties tie anymore
+                tiesAtLimit.clear();
+            }
+        }
+        else if(value==lowestValue){   //the item ties with the lowest item in the ranking
+            tiesAtLimit.add(rankedItem);
+        }
+    }
+
+
+
+    //returns the ranked items in descending order of their values (items with the same value are kept in the order they were added)
+    List<T> getRanking(){
+        return getRanking(limit);
+    }
+
+
+
+    //same as above, but cut down to a lower limit (the <limit> highest items, plus every further item that ties with the item at that limit).
+    //Used when the number of items a report needs is only known once every item has been added
+    List<T> getRanking(int limit){
+        List<RankedItem<T>> rankedItems = new ArrayList<>(topItems.size() + tiesAtLimit.size());
+        rankedItems.addAll(topItems);
+        rankedItems.addAll(tiesAtLimit);
+        rankedItems.sort(new Comparator<RankedItem<T>>(){
+            public int compare(RankedItem<T> a, RankedItem<T> b){
+                int byValue = Float.compare(b.value, a.value);
+                if(byValue!=0){
+                    return byValue;
+                }
+                return Long.compare(a.order, b.order);
+            }
+        });
+        List<T> ranking = new ArrayList<>(rankedItems.size());
+        for(int i=0; i<rankedItems.size(); i++){
+            if(i>=limit && rankedItems.get(i).value!=rankedItems.get(limit-1).value){   //past the limit, and no longer tied with the item at it
+                break;
+            }
+            ranking.add(rankedItems.get(i).item);
+        }
+        return ranking;
+    }
+
+
+
+    //this class stores an item along with its value and the order in which it was added to the ranking
+    private static class RankedItem<T> {
+        private T item;
+        private float value;
+        private long order;
+
+        RankedItem(T item, float value, long order){
+            this.item = item;
+            this.value = value;
+            this.order = order;
+        }
+    }
+}